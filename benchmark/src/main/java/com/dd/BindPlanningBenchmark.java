@@ -0,0 +1,125 @@
+package com.dd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning and shape arithmetic of binding {@link #BINDINGS} recycled rows of varying widths to random
+ * states: the {@link StateManager} request and plan plus instant morph geometry of
+ * {@code setProgress(progress, false)} against the reset plus snap geometry of {@code bindState()}.
+ * <p>
+ * Only the JVM-side math is measured. View, drawable, listener and animator work, which is what
+ * {@code bindState()} saves, can't run here and is covered by the allocation test of the button instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class BindPlanningBenchmark
+{
+	private static final int BINDINGS = 1000;
+	private static final int HEIGHT = 144;
+	private static final int PADDING_PROGRESS = 8;
+	private static final int STROKE_WIDTH = 12;
+
+	private int maxProgress = 100;
+	private State[] states;
+	private int[] progress;
+	private int[] widths;
+
+	private final StateManager stateManager = new StateManager(true);
+	private final MorphGeometry morphGeometry = new MorphGeometry();
+	private final RingGeometry ringGeometry = new RingGeometry();
+
+	@Setup
+	public void setup(){
+		Random random = new Random(42);
+		State[] values = State.values();
+		states = new State[BINDINGS];
+		progress = new int[BINDINGS];
+		widths = new int[BINDINGS];
+		for(int i = 0; i < BINDINGS; i++){
+			State state = values[random.nextInt(values.length)];
+			states[i] = state;
+			switch(state){
+				case PROGRESS:
+					progress[i] = 1 + random.nextInt(maxProgress - 1);
+					break;
+				case COMPLETE:
+					progress[i] = maxProgress;
+					break;
+				case ERROR:
+					progress[i] = Transition.ERROR_PROGRESS;
+					break;
+				default:
+					progress[i] = Transition.IDLE_PROGRESS;
+					break;
+			}
+			widths[i] = 400 + random.nextInt(4) * 80;
+		}
+	}
+
+	@Benchmark
+	public void instantMorph(Blackhole blackhole){
+		State shown = State.IDLE;
+		stateManager.reset(shown);
+		for(int i = 0; i < BINDINGS; i++){
+			int width = widths[i];
+			stateManager.request(shown, Transition.targetOf(progress[i], maxProgress));
+			Transition transition = stateManager.plan(shown);
+			if(transition != Transition.NONE && transition != Transition.PROGRESS_UPDATE){
+				// MorphingAnimation.start() with DURATION_INSTANT
+				int fromWidth = shown == State.PROGRESS ? HEIGHT : width;
+				int toWidth = transition.target == State.PROGRESS ? HEIGHT : width;
+				boolean shrinking = fromWidth > toWidth;
+				morphGeometry.set(fromWidth, toWidth, shrinking ? 0 : PADDING_PROGRESS,
+						shrinking ? PADDING_PROGRESS : 0, width);
+				morphGeometry.compute(1f, HEIGHT);
+				blackhole.consume(morphGeometry.getLeft());
+				shown = transition.target;
+			}
+			if(shown == State.PROGRESS){
+				bindRing(blackhole, width, progress[i]);
+			}
+		}
+	}
+
+	@Benchmark
+	public void bindState(Blackhole blackhole){
+		for(int i = 0; i < BINDINGS; i++){
+			State state = states[i];
+			int width = widths[i];
+			stateManager.reset(state);
+			// MorphingAnimation.snapTo()
+			boolean progressState = state == State.PROGRESS;
+			int snapWidth = progressState ? HEIGHT : width;
+			float padding = progressState ? PADDING_PROGRESS : 0;
+			morphGeometry.set(snapWidth, snapWidth, padding, padding, width);
+			morphGeometry.compute(1f, HEIGHT);
+			blackhole.consume(morphGeometry.getLeft());
+			if(progressState){
+				bindRing(blackhole, width, progress[i]);
+			}
+		}
+	}
+
+	private void bindRing(Blackhole blackhole, int width, int progress){
+		ringGeometry.set(width, HEIGHT, PADDING_PROGRESS, STROKE_WIDTH);
+		float fraction = (float) progress / maxProgress;
+		int steps = ProgressSweep.autoSteps(ringGeometry.getSize(), STROKE_WIDTH);
+		blackhole.consume(ProgressSweep.step(ProgressSweep.angle(fraction), steps));
+	}
+}
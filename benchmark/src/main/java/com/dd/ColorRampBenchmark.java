@@ -0,0 +1,101 @@
+package com.dd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame color cost of a morph: background plus stroke color for every frame of a
+ * 400 ms transition at 60 fps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColorRampBenchmark
+{
+	private static final int FRAMES = 400 * 60 / 1000;
+
+	private int fromColor = 0xff0099cc;
+	private int toColor = 0xffffffff;
+	private int fromStrokeColor = 0xff0099cc;
+	private int toStrokeColor = 0xffdedede;
+
+	private final ArgbEvaluator evaluator = new ArgbEvaluator();
+	private float[] fractions;
+	private ColorRamp colorRamp;
+	private ColorRamp strokeColorRamp;
+
+	@Setup
+	public void setup(){
+		fractions = new float[FRAMES];
+		for(int i = 0; i < FRAMES; i++){
+			float input = (float) (i + 1) / FRAMES;
+			// AccelerateDecelerateInterpolator, the ValueAnimator default
+			fractions[i] = (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+		}
+		colorRamp = ColorRamp.obtain(fromColor, toColor);
+		strokeColorRamp = ColorRamp.obtain(fromStrokeColor, toStrokeColor);
+	}
+
+	@Benchmark
+	public void argbEvaluator(Blackhole blackhole){
+		for(float fraction : fractions){
+			blackhole.consume(evaluator.evaluate(fraction, fromColor, toColor));
+			blackhole.consume(evaluator.evaluate(fraction, fromStrokeColor, toStrokeColor));
+		}
+	}
+
+	@Benchmark
+	public void primitiveEvaluate(Blackhole blackhole){
+		for(float fraction : fractions){
+			blackhole.consume(ColorRamp.evaluate(fraction, fromColor, toColor));
+			blackhole.consume(ColorRamp.evaluate(fraction, fromStrokeColor, toStrokeColor));
+		}
+	}
+
+	@Benchmark
+	public void colorRamp(Blackhole blackhole){
+		for(float fraction : fractions){
+			blackhole.consume(colorRamp.colorAt(fraction));
+			blackhole.consume(strokeColorRamp.colorAt(fraction));
+		}
+	}
+
+	/**
+	 * JVM copy of the pre-O {@code android.animation.ArgbEvaluator}, which works on boxed values.
+	 */
+	private static class ArgbEvaluator
+	{
+		Object evaluate(float fraction, Object startValue, Object endValue){
+			int startInt = (Integer) startValue;
+			int startA = (startInt >> 24) & 0xff;
+			int startR = (startInt >> 16) & 0xff;
+			int startG = (startInt >> 8) & 0xff;
+			int startB = startInt & 0xff;
+
+			int endInt = (Integer) endValue;
+			int endA = (endInt >> 24) & 0xff;
+			int endR = (endInt >> 16) & 0xff;
+			int endG = (endInt >> 8) & 0xff;
+			int endB = endInt & 0xff;
+
+			return (startA + (int) (fraction * (endA - startA))) << 24
+					| (startR + (int) (fraction * (endR - startR))) << 16
+					| (startG + (int) (fraction * (endG - startG))) << 8
+					| (startB + (int) (fraction * (endB - startB)));
+		}
+	}
+}
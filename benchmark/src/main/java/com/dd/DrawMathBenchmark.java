@@ -0,0 +1,90 @@
+package com.dd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame math of the draw paths: indeterminate arc, morph bounds and determinate sweep.
+ * Each invocation covers one second of frames at 60 fps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DrawMathBenchmark
+{
+	private static final int FRAMES = 60;
+
+	private int height = 96;
+	private int width = 480;
+	private float padding = 8;
+	private int strokeWidth = 12;
+
+	private float[] fractions;
+	private long[] frameTimes;
+	private SpinnerPhase phase;
+	private MorphGeometry geometry;
+
+	@Setup
+	public void setup(){
+		fractions = new float[FRAMES];
+		frameTimes = new long[FRAMES];
+		for(int i = 0; i < FRAMES; i++){
+			fractions[i] = (float) i / (FRAMES - 1);
+			frameTimes[i] = i * 1000L / FRAMES;
+		}
+		phase = new SpinnerPhase();
+		geometry = new MorphGeometry();
+	}
+
+	@Benchmark
+	public void spinnerArc(Blackhole blackhole){
+		for(long frameTime : frameTimes){
+			phase.setElapsed(frameTime);
+			blackhole.consume(phase.getArcStartAngle());
+			blackhole.consume(phase.getArcSweepAngle());
+		}
+	}
+
+	@Benchmark
+	public void morphBounds(Blackhole blackhole){
+		geometry.set(width, height, 0, padding, width);
+		for(float fraction : fractions){
+			geometry.compute(fraction, height);
+			blackhole.consume(geometry.getLeft());
+			blackhole.consume(geometry.getTop());
+			blackhole.consume(geometry.getRight());
+			blackhole.consume(geometry.getBottom());
+		}
+	}
+
+	/**
+	 * Progress fraction to quantized sweep, as {@code CircularProgressDrawable.setSweepAngle()} runs it with
+	 * automatic sweep steps: only frames that reach a new step redraw.
+	 */
+	@Benchmark
+	public void progressSweep(Blackhole blackhole){
+		int steps = ProgressSweep.autoSteps(height - 2 * (int) padding, strokeWidth);
+		int lastStep = -1;
+		for(float fraction : fractions){
+			int step = ProgressSweep.step(ProgressSweep.angle(fraction), steps);
+			if(step != lastStep){
+				lastStep = step;
+				blackhole.consume(step * 360f / steps);
+			}
+		}
+	}
+}
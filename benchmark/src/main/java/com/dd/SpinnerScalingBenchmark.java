@@ -0,0 +1,70 @@
+package com.dd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame phase cost of {@code spinnerCount} visible spinners, each computing its own phase
+ * versus all of them reading one shared phase.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpinnerScalingBenchmark
+{
+	@Param({"1", "10", "50", "200"})
+	private int spinnerCount;
+
+	private SpinnerPhase[] phases;
+	private long[] startTimes;
+	private SpinnerPhase sharedPhase;
+	private long frameTime;
+
+	@Setup
+	public void setup(){
+		phases = new SpinnerPhase[spinnerCount];
+		startTimes = new long[spinnerCount];
+		for(int i = 0; i < spinnerCount; i++){
+			phases[i] = new SpinnerPhase();
+			startTimes[i] = i * 37;
+		}
+		sharedPhase = new SpinnerPhase();
+	}
+
+	@Benchmark
+	public void independent(Blackhole blackhole){
+		frameTime += 16;
+		for(int i = 0; i < spinnerCount; i++){
+			SpinnerPhase phase = phases[i];
+			phase.setElapsed(frameTime - startTimes[i]);
+			blackhole.consume(phase.getArcStartAngle());
+			blackhole.consume(phase.getArcSweepAngle());
+		}
+	}
+
+	@Benchmark
+	public void synchronizedPhase(Blackhole blackhole){
+		frameTime += 16;
+		for(int i = 0; i < spinnerCount; i++){
+			SpinnerPhase phase = sharedPhase;
+			phase.setElapsed(frameTime);
+			blackhole.consume(phase.getArcStartAngle());
+			blackhole.consume(phase.getArcSweepAngle());
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.dd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State dispatch done by {@code CircularProgressButton.setProgress()} for a stream of progress values: every
+ * value is mapped to its state and requested from the {@link StateManager}, which plans one transition per
+ * frame from the state on screen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class TransitionBenchmark
+{
+	private static final int CALLS = 1024;
+	private static final int CALLS_PER_FRAME = 4;
+
+	private int maxProgress = 100;
+	private int[] progress;
+	private StateManager stateManager;
+
+	@Setup
+	public void setup(){
+		Random random = new Random(42);
+		progress = new int[CALLS];
+		for(int i = 0; i < CALLS; i++){
+			progress[i] = random.nextInt(maxProgress + 2) - 1;
+		}
+		stateManager = new StateManager(true);
+	}
+
+	/**
+	 * Random values, state sentinels included, several per frame as from a busy producer.
+	 */
+	@Benchmark
+	public void animatedRequests(Blackhole blackhole){
+		State shown = State.IDLE;
+		stateManager.reset(shown);
+		for(int i = 0; i < CALLS; i++){
+			stateManager.request(shown, Transition.targetOf(progress[i], maxProgress));
+			if(i % CALLS_PER_FRAME == CALLS_PER_FRAME - 1){
+				Transition transition = stateManager.plan(shown);
+				if(transition.target != null){
+					shown = transition.target;
+				}
+				blackhole.consume(transition);
+			}
+		}
+	}
+
+	/**
+	 * Plain progress updates while progress is shown, each applied right away.
+	 */
+	@Benchmark
+	public void progressUpdates(Blackhole blackhole){
+		stateManager.reset(State.PROGRESS);
+		for(int i = 0; i < CALLS; i++){
+			stateManager.request(State.PROGRESS, Transition.targetOf(1 + i % (maxProgress - 1), maxProgress));
+			blackhole.consume(stateManager.plan(State.PROGRESS));
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package com.dd;
+
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.TypedValue;
+import android.view.FrameMetrics;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the main thread draw time of the first progress frame of a prewarmed button with the frames
+ * that follow, using {@link FrameMetrics}. Needs API 24.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FirstProgressFrameTest
+{
+	private static final int STEADY_FRAMES = 15;
+	// the first frame may cost this much more than the median steady frame, for scheduling noise
+	private static final long FIRST_FRAME_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+	@Rule
+	public final ActivityTestRule<TestActivity> rule = new ActivityTestRule<TestActivity>(TestActivity.class);
+
+	private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+	private final LinkedBlockingQueue<Long> drawDurations = new LinkedBlockingQueue<Long>();
+	private CircularProgressButton button;
+	private HandlerThread metricsThread;
+	private Window.OnFrameMetricsAvailableListener metricsListener;
+
+	@Before
+	public void setUp(){
+		assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+		metricsThread = new HandlerThread("FrameMetrics");
+		metricsThread.start();
+		metricsListener = new Window.OnFrameMetricsAvailableListener()
+		{
+			@Override
+			public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCount){
+				drawDurations.add(frameMetrics.getMetric(FrameMetrics.DRAW_DURATION));
+			}
+		};
+	}
+
+	@After
+	public void tearDown(){
+		if(metricsThread != null){
+			instrumentation.runOnMainSync(new Runnable()
+			{
+				@Override
+				public void run(){
+					rule.getActivity().getWindow().removeOnFrameMetricsAvailableListener(metricsListener);
+				}
+			});
+			metricsThread.quit();
+		}
+	}
+
+	@Test
+	public void firstDeterminateFrameCostsLikeSteadyFrames() throws InterruptedException{
+		show(false);
+
+		long first = drawNanos(new Runnable()
+		{
+			@Override
+			public void run(){
+				button.bindState(State.PROGRESS, .01f, false);
+			}
+		});
+		assertFirstFrameLikeSteadyFrames(first, new Runnable()
+		{
+			int progress = 1;
+
+			@Override
+			public void run(){
+				button.setProgress(++progress);
+			}
+		});
+	}
+
+	@Test
+	public void firstIndeterminateFrameCostsLikeSteadyFrames() throws InterruptedException{
+		show(true);
+
+		long first = drawNanos(new Runnable()
+		{
+			@Override
+			public void run(){
+				button.bindState(State.PROGRESS, 0, true);
+			}
+		});
+		assertFirstFrameLikeSteadyFrames(first, new Runnable()
+		{
+			@Override
+			public void run(){
+				button.invalidate();
+			}
+		});
+	}
+
+	@Test
+	public void prewarmBuildsRenderThreadSpinnerBeforeAttach(){
+		assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1);
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run(){
+				CircularProgressButton detached = new CircularProgressButton(rule.getActivity());
+				detached.setRenderThreadSpinnerEnabled(true);
+				detached.setIndeterminateProgressMode(true);
+				// a 48dp ring with the default 4dp stroke is drawn by the vector spinner
+				detached.layout(0, 0, dp(200), dp(48));
+
+				detached.prewarm();
+
+				assertNotNull(detached.getRenderThreadSpinner());
+			}
+		});
+	}
+
+	/**
+	 * Attaches a button in the idle state with the RenderThread spinner enabled and prewarms it.
+	 */
+	private void show(final boolean indeterminate){
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run(){
+				TestActivity activity = rule.getActivity();
+				button = new CircularProgressButton(activity);
+				button.setRenderThreadSpinnerEnabled(true);
+				button.setIndeterminateProgressMode(indeterminate);
+				activity.setContentView(button, new ViewGroup.LayoutParams(dp(200), dp(48)));
+				activity.getWindow().addOnFrameMetricsAvailableListener(metricsListener,
+						new Handler(metricsThread.getLooper()));
+			}
+		});
+		instrumentation.waitForIdleSync();
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run(){
+				button.prewarm();
+			}
+		});
+		instrumentation.waitForIdleSync();
+	}
+
+	private void assertFirstFrameLikeSteadyFrames(long first, Runnable steadyChange) throws InterruptedException{
+		long[] steady = new long[STEADY_FRAMES];
+		for(int i = 0; i < STEADY_FRAMES; i++){
+			steady[i] = drawNanos(steadyChange);
+		}
+		Arrays.sort(steady);
+		long median = steady[STEADY_FRAMES / 2];
+		assertTrue("first progress frame drew in " + first + "ns, steady frames in " + median + "ns",
+				first <= 2 * median + FIRST_FRAME_SLACK_NANOS);
+	}
+
+	/**
+	 * @return main thread draw time of the frame that shows {@code change}
+	 */
+	private long drawNanos(final Runnable change) throws InterruptedException{
+		instrumentation.waitForIdleSync();
+		// metrics of earlier frames may still arrive
+		SystemClock.sleep(100);
+		drawDurations.clear();
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run(){
+				change.run();
+				View decor = rule.getActivity().getWindow().getDecorView();
+				decor.invalidate();
+			}
+		});
+		Long duration = drawDurations.poll(1, TimeUnit.SECONDS);
+		assertNotNull("no frame was drawn", duration);
+		return duration;
+	}
+
+	private int dp(int dp){
+		return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
+				instrumentation.getTargetContext().getResources().getDisplayMetrics());
+	}
+}
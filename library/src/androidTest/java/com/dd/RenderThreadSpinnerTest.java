@@ -0,0 +1,124 @@
+package com.dd;
+
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.TypedValue;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Blocks the main thread and checks that the RenderThread spinner keeps producing new frames meanwhile.
+ * Needs API 26 to copy the window content.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RenderThreadSpinnerTest
+{
+	private static final long BLOCK_MILLIS = 1500;
+	private static final long FRAME_GAP_MILLIS = 300;
+
+	@Rule
+	public final ActivityTestRule<TestActivity> rule = new ActivityTestRule<TestActivity>(TestActivity.class);
+
+	private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+	private CircularProgressButton button;
+	private HandlerThread copyThread;
+
+	@Before
+	public void setUp(){
+		assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+		copyThread = new HandlerThread("PixelCopy");
+		copyThread.start();
+
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run(){
+				TestActivity activity = rule.getActivity();
+				button = new CircularProgressButton(activity);
+				// a 48dp ring with the default 4dp stroke is drawn by the vector spinner
+				activity.setContentView(button, new ViewGroup.LayoutParams(dp(200), dp(48)));
+				button.setRenderThreadSpinnerEnabled(true);
+				button.setIndeterminateProgressMode(true);
+				button.bindState(State.PROGRESS);
+			}
+		});
+		instrumentation.waitForIdleSync();
+	}
+
+	@After
+	public void tearDown(){
+		if(copyThread != null){
+			copyThread.quit();
+		}
+	}
+
+	@Test
+	public void spinnerAdvancesWhileMainThreadIsBlocked() throws InterruptedException{
+		assumeTrue(button.isRenderThreadSpinnerActive());
+		Window window = rule.getActivity().getWindow();
+		View decor = window.getDecorView();
+		int width = decor.getWidth();
+		int height = decor.getHeight();
+
+		final CountDownLatch blocked = new CountDownLatch(1);
+		rule.getActivity().runOnUiThread(new Runnable()
+		{
+			@Override
+			public void run(){
+				blocked.countDown();
+				SystemClock.sleep(BLOCK_MILLIS);
+			}
+		});
+		blocked.await();
+
+		Bitmap first = copy(window, width, height);
+		SystemClock.sleep(FRAME_GAP_MILLIS);
+		Bitmap second = copy(window, width, height);
+
+		assertFalse("spinner did not move while the main thread was blocked", first.sameAs(second));
+	}
+
+	private Bitmap copy(Window window, int width, int height) throws InterruptedException{
+		Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		final CountDownLatch copied = new CountDownLatch(1);
+		final int[] result = new int[1];
+		PixelCopy.request(window, bitmap, new PixelCopy.OnPixelCopyFinishedListener()
+		{
+			@Override
+			public void onPixelCopyFinished(int copyResult){
+				result[0] = copyResult;
+				copied.countDown();
+			}
+		}, new Handler(copyThread.getLooper()));
+		copied.await(1, TimeUnit.SECONDS);
+		assertEquals(PixelCopy.SUCCESS, result[0]);
+		return bitmap;
+	}
+
+	private int dp(int dp){
+		return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
+				instrumentation.getTargetContext().getResources().getDisplayMetrics());
+	}
+}
@@ -0,0 +1,10 @@
+package com.dd;
+
+import android.app.Activity;
+
+/**
+ * Empty host window for instrumentation tests.
+ */
+public class TestActivity extends Activity
+{
+}
@@ -0,0 +1,127 @@
+package com.dd;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Field metrics of one {@link CircularProgressButton}, enabled with
+ * {@link CircularProgressButton#setMetricsListener(Listener)}. Values are aggregated into histograms that
+ * are allocated once with the metrics, so recording allocates nothing. Without a listener the button keeps
+ * no metrics and pays a single null check per instrumented call.
+ * <p>
+ * Read the metrics on the main thread, for instance from {@link Listener#onTransition}.
+ */
+public final class ButtonMetrics
+{
+	public interface Listener
+	{
+		/**
+		 * Called on the main thread whenever a morph finishes.
+		 *
+		 * @param fromState      name of the state the morph started from
+		 * @param toState        name of the state the button is in now
+		 * @param durationMillis time from planning the morph to its end, including any retarget
+		 * @param metrics        aggregated metrics of the button, updated with this transition
+		 */
+		void onTransition(String fromState, String toState, long durationMillis, ButtonMetrics metrics);
+	}
+
+	private final StateManager stateManager;
+
+	private final Histogram drawTimes = new Histogram();
+	private final Histogram progressDrawTimes = new Histogram();
+	private final Histogram spinnerDrawTimes = new Histogram();
+	private final Histogram transitionDurations = new Histogram();
+	private final AtomicInteger coalescedProgress = new AtomicInteger();
+	private int transitions;
+	private int elidedTransitionsBase;
+
+	ButtonMetrics(StateManager stateManager){
+		this.stateManager = stateManager;
+		elidedTransitionsBase = stateManager.getElidedTransitionCount();
+	}
+
+	void recordDraw(long nanos){
+		drawTimes.record(nanos);
+	}
+
+	void recordProgressDraw(long nanos){
+		progressDrawTimes.record(nanos);
+	}
+
+	void recordSpinnerDraw(long nanos){
+		spinnerDrawTimes.record(nanos);
+	}
+
+	void recordTransition(long durationMillis){
+		transitions++;
+		transitionDurations.record(durationMillis * 1000000);
+	}
+
+	void recordCoalescedProgress(){
+		coalescedProgress.incrementAndGet();
+	}
+
+	/**
+	 * @return time spent in {@code onDraw()}, in nanoseconds
+	 */
+	public Histogram getDrawTimes(){
+		return drawTimes;
+	}
+
+	/**
+	 * @return time spent drawing the determinate progress ring, in nanoseconds
+	 */
+	public Histogram getProgressDrawTimes(){
+		return progressDrawTimes;
+	}
+
+	/**
+	 * @return time spent drawing the indeterminate spinner, in nanoseconds
+	 */
+	public Histogram getSpinnerDrawTimes(){
+		return spinnerDrawTimes;
+	}
+
+	/**
+	 * @return durations of finished morphs, in nanoseconds
+	 */
+	public Histogram getTransitionDurations(){
+		return transitionDurations;
+	}
+
+	public int getTransitionCount(){
+		return transitions;
+	}
+
+	/**
+	 * @return morphs requested through {@code setProgress()} that were never played because a later request
+	 * within the same frame superseded them
+	 */
+	public int getElidedTransitionCount(){
+		return stateManager.getElidedTransitionCount() - elidedTransitionsBase;
+	}
+
+	/**
+	 * @return values passed to {@code postProgress()} that were replaced by a newer one before being applied
+	 */
+	public int getCoalescedProgressCount(){
+		return coalescedProgress.get();
+	}
+
+	/**
+	 * @return indeterminate spinners currently animating in this process
+	 */
+	public int getLiveAnimatorCount(){
+		return CircularAnimatedDrawable.getRunningCount();
+	}
+
+	public void reset(){
+		drawTimes.reset();
+		progressDrawTimes.reset();
+		spinnerDrawTimes.reset();
+		transitionDurations.reset();
+		coalescedProgress.set(0);
+		transitions = 0;
+		elidedTransitionsBase = stateManager.getElidedTransitionCount();
+	}
+}
@@ -0,0 +1,221 @@
+package com.dd;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.dd.circular.progress.button.R;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable, shared result of parsing the {@code CircularProgressButton} attributes: texts, dimensions and
+ * the state colors of the idle, complete and error selectors resolved to plain ints. Specs are cached per
+ * theme by style and by the values of the button's own attributes, so a list of buttons inflated from one
+ * layout parses its style and inflates its color selectors once.
+ * <p>
+ * Activities that handle configuration changes themselves keep their theme, so the specs of a theme are
+ * dropped once the resources configuration (orientation, locale, night mode, ...) no longer matches the one
+ * they were resolved with.
+ */
+final class ButtonSpec
+{
+	/**
+	 * Colors of one state selector, resolved once.
+	 */
+	static final class StateColors
+	{
+		final int normal;
+		final int pressed;
+		final int focused;
+		final int disabled;
+
+		StateColors(ColorStateList colorStateList){
+			normal = colorStateList.getColorForState(new int[]{android.R.attr.state_enabled}, 0);
+			pressed = colorStateList.getColorForState(new int[]{android.R.attr.state_pressed}, 0);
+			focused = colorStateList.getColorForState(new int[]{android.R.attr.state_focused}, 0);
+			disabled = colorStateList.getColorForState(new int[]{-android.R.attr.state_enabled}, 0);
+		}
+	}
+
+	/**
+	 * Specs of one theme, resolved with {@link #configuration}.
+	 */
+	private static final class ThemeSpecs
+	{
+		final Configuration configuration;
+		final HashMap<Key, ButtonSpec> specs = new HashMap<Key, ButtonSpec>();
+
+		ThemeSpecs(Configuration configuration){
+			this.configuration = new Configuration(configuration);
+		}
+	}
+
+	private static final WeakHashMap<Resources.Theme, ThemeSpecs> CACHE = new WeakHashMap<Resources.Theme, ThemeSpecs>();
+
+	final String idleText;
+	final String completeText;
+	final String errorText;
+	final String progressText;
+	final int iconComplete;
+	final int iconError;
+	final float cornerRadius;
+	final int paddingProgress;
+	final int morphLayerPolicy;
+	final int maxProgress;
+	final int sweepResolution;
+	final int colorProgress;
+	final int colorIndicator;
+	final int colorIndicatorBackground;
+	final StateColors idleColors;
+	final StateColors completeColors;
+	final StateColors errorColors;
+
+	private ButtonSpec(TypedArray attr, View view){
+		idleText = attr.getString(R.styleable.CircularProgressButton_cpb_textIdle);
+		completeText = attr.getString(R.styleable.CircularProgressButton_cpb_textComplete);
+		errorText = attr.getString(R.styleable.CircularProgressButton_cpb_textError);
+		progressText = attr.getString(R.styleable.CircularProgressButton_cpb_textProgress);
+
+		iconComplete = attr.getResourceId(R.styleable.CircularProgressButton_cpb_iconComplete, 0);
+		iconError = attr.getResourceId(R.styleable.CircularProgressButton_cpb_iconError, 0);
+		cornerRadius = attr.getDimension(R.styleable.CircularProgressButton_cpb_cornerRadius, 0);
+		paddingProgress = attr.getDimensionPixelSize(R.styleable.CircularProgressButton_cpb_paddingProgress, 0);
+		morphLayerPolicy = attr.getInt(R.styleable.CircularProgressButton_cpb_morphLayer, MorphingAnimation.LAYER_NEVER);
+		maxProgress = attr.getInt(R.styleable.CircularProgressButton_cpb_maxProgress,
+				CircularProgressButton.DEFAULT_MAX_PROGRESS);
+		sweepResolution = attr.getInt(R.styleable.CircularProgressButton_cpb_sweepResolution,
+				CircularProgressDrawable.SWEEP_STEPS_AUTO);
+
+		int blue = ViewUtils.color(R.color.cpb_blue, view);
+		int white = ViewUtils.color(R.color.cpb_white, view);
+		int grey = ViewUtils.color(R.color.cpb_grey, view);
+
+		int idleStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorIdle,
+				R.color.cpb_idle_state_selector);
+		idleColors = new StateColors(ViewUtils.colorStateList(idleStateSelector, view));
+
+		int completeStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorComplete,
+				R.color.cpb_complete_state_selector);
+		completeColors = new StateColors(ViewUtils.colorStateList(completeStateSelector, view));
+
+		int errorStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorError,
+				R.color.cpb_error_state_selector);
+		errorColors = new StateColors(ViewUtils.colorStateList(errorStateSelector, view));
+
+		colorProgress = attr.getColor(R.styleable.CircularProgressButton_cpb_colorProgress, white);
+		colorIndicator = attr.getColor(R.styleable.CircularProgressButton_cpb_colorIndicator, blue);
+		colorIndicatorBackground =
+				attr.getColor(R.styleable.CircularProgressButton_cpb_colorIndicatorBackground, grey);
+	}
+
+	/**
+	 * @return the cached spec for the button's theme, style and attributes, parsing it on first use;
+	 * null if the button provides no attributes
+	 */
+	static ButtonSpec obtain(CircularProgressButton button, Context context, AttributeSet attributeSet){
+		Resources.Theme theme = context.getTheme();
+		Configuration configuration = context.getResources().getConfiguration();
+		// subclasses may resolve their attributes differently in getTypedArray()
+		Key key = new Key(button.getClass(), attributeSet);
+		synchronized(CACHE){
+			ThemeSpecs themeSpecs = CACHE.get(theme);
+			if(themeSpecs == null || themeSpecs.configuration.diff(configuration) != 0){
+				themeSpecs = new ThemeSpecs(configuration);
+				CACHE.put(theme, themeSpecs);
+			}
+			HashMap<Key, ButtonSpec> specs = themeSpecs.specs;
+			ButtonSpec spec = specs.get(key);
+			if(spec != null){
+				return spec;
+			}
+
+			TypedArray attr = button.getTypedArray(context, attributeSet, R.styleable.CircularProgressButton);
+			if(attr == null){
+				return null;
+			}
+			try {
+				spec = new ButtonSpec(attr, button);
+			}
+			finally {
+				attr.recycle();
+			}
+			specs.put(key, spec);
+			return spec;
+		}
+	}
+
+	/**
+	 * Identifies the attributes of one button: its style plus the raw values of the attributes it sets from
+	 * {@code R.styleable.CircularProgressButton}. Other attributes, like ids or layout params, differ between
+	 * buttons of the same style and are left out.
+	 */
+	private static final class Key
+	{
+		private final Class<?> type;
+		private final int style;
+		private final int[] names;
+		private final String[] values;
+		private final int hashCode;
+
+		Key(Class<?> type, AttributeSet attributeSet){
+			this.type = type;
+			int count = attributeSet != null ? attributeSet.getAttributeCount() : 0;
+			int[] names = new int[count];
+			String[] values = new String[count];
+			int size = 0;
+			for(int i = 0; i < count; i++){
+				int name = attributeSet.getAttributeNameResource(i);
+				if(isButtonAttribute(name)){
+					names[size] = name;
+					values[size] = attributeSet.getAttributeValue(i);
+					size++;
+				}
+			}
+			this.style = attributeSet != null ? attributeSet.getStyleAttribute() : 0;
+			this.names = Arrays.copyOf(names, size);
+			this.values = Arrays.copyOf(values, size);
+
+			int result = type.hashCode();
+			result = 31 * result + style;
+			result = 31 * result + Arrays.hashCode(this.names);
+			result = 31 * result + Arrays.hashCode(this.values);
+			hashCode = result;
+		}
+
+		private static boolean isButtonAttribute(int name){
+			for(int attr : R.styleable.CircularProgressButton){
+				if(attr == name){
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof Key)){
+				return false;
+			}
+			Key key = (Key) o;
+			return type == key.type
+					&& style == key.style
+					&& Arrays.equals(names, key.names)
+					&& Arrays.equals(values, key.values);
+		}
+
+		@Override
+		public int hashCode(){
+			return hashCode;
+		}
+	}
+}
@@ -1,8 +1,5 @@
 package com.dd;
 
-import android.animation.Animator;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
@@ -12,29 +9,35 @@ import android.graphics.RectF;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
-import android.util.Property;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
-import android.view.animation.LinearInterpolator;
 
-class CircularAnimatedDrawable extends Drawable implements Animatable
+class CircularAnimatedDrawable extends Drawable implements Animatable, SpinnerTicker.Callback
 {
-	private static final Interpolator ANGLE_INTERPOLATOR = new LinearInterpolator();
-	private static final Interpolator SWEEP_INTERPOLATOR = new DecelerateInterpolator();
-	private static final int ANGLE_ANIMATOR_DURATION = 2000;
-	private static final int SWEEP_ANIMATOR_DURATION = 600;
-	private static final int MIN_SWEEP_ANGLE = 30;
+	static final int POWER_SAVING_FRAME_RATE = 20;
+	private static final float AUTO_ANGULAR_DELTA = -1;
+
 	private final RectF bounds = new RectF();
 
-	private ObjectAnimator objectAnimatorSweep;
-	private ObjectAnimator objectAnimatorAngle;
-	private boolean modeAppearing;
+	private final SpinnerPhase phase = new SpinnerPhase();
+	private SpinnerPhase drawPhase = phase;
+	private boolean synchronizedPhase;
 	private Paint paint;
-	private float currentGlobalAngleOffset;
-	private float currentGlobalAngle;
-	private float currentSweepAngle;
 	private float borderWidth;
 	private boolean running;
+	private long startTime;
+	private long stoppedElapsed;
+
+	private int maxFrameRate;
+	private boolean powerSaving;
+	private long minFrameInterval;
+	private float minAngularDelta = AUTO_ANGULAR_DELTA;
+	private float pixelAngularDelta;
+	private long lastInvalidateTime;
+	private float lastStartAngle;
+	private float lastEndAngle;
+	private int suppressedInvalidations;
+
+	private boolean flipbookEnabled;
+	private SpinnerFlipbook flipbook;
 
 	CircularAnimatedDrawable(int color, float borderWidth){
 		this.borderWidth = borderWidth;
@@ -44,22 +47,20 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 		paint.setStyle(Paint.Style.STROKE);
 		paint.setStrokeWidth(borderWidth);
 		paint.setColor(color);
+		// only used by flipbook blits, which are rotated
+		paint.setFilterBitmap(true);
 
-		setupAnimations();
+		phase.setElapsed(0);
 	}
 
 	@Override
 	public void draw(@NonNull Canvas canvas){
-		float startAngle = currentGlobalAngle - currentGlobalAngleOffset;
-		float sweepAngle = currentSweepAngle;
-		if(!modeAppearing){
-			startAngle = startAngle + sweepAngle;
-			sweepAngle = 360 - sweepAngle - MIN_SWEEP_ANGLE;
+		if(flipbook != null){
+			flipbook.draw(canvas, getBounds(), drawPhase.getArcStartAngle(), drawPhase.getArcSweepAngle(), paint);
 		}
 		else {
-			sweepAngle += MIN_SWEEP_ANGLE;
+			canvas.drawArc(bounds, drawPhase.getArcStartAngle(), drawPhase.getArcSweepAngle(), false, paint);
 		}
-		canvas.drawArc(bounds, startAngle, sweepAngle, false, paint);
 	}
 
 	@Override
@@ -77,13 +78,6 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 		return PixelFormat.TRANSPARENT;
 	}
 
-	private void toggleAppearingMode(){
-		modeAppearing = !modeAppearing;
-		if(modeAppearing){
-			currentGlobalAngleOffset = (currentGlobalAngleOffset + MIN_SWEEP_ANGLE * 2) % 360;
-		}
-	}
-
 	@Override
 	protected void onBoundsChange(Rect bounds){
 		super.onBoundsChange(bounds);
@@ -91,70 +85,129 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 		this.bounds.right = bounds.right - borderWidth / 2f - .5f;
 		this.bounds.top = bounds.top + borderWidth / 2f + .5f;
 		this.bounds.bottom = bounds.bottom - borderWidth / 2f - .5f;
+
+		// angle the arc ends have to move by to travel one pixel along the ring
+		float radius = Math.min(this.bounds.width(), this.bounds.height()) / 2f;
+		pixelAngularDelta = radius > 0 ? (float) (180 / (Math.PI * radius)) : 0;
+		updateFlipbook();
 	}
 
-	private Property<CircularAnimatedDrawable, Float> mAngleProperty =
-			new Property<CircularAnimatedDrawable, Float>(Float.class, "angle")
-			{
-				@Override
-				public Float get(CircularAnimatedDrawable object){
-					return object.getCurrentGlobalAngle();
-				}
-
-				@Override
-				public void set(CircularAnimatedDrawable object, Float value){
-					object.setCurrentGlobalAngle(value);
-				}
-			};
-
-	private Property<CircularAnimatedDrawable, Float> mSweepProperty
-			= new Property<CircularAnimatedDrawable, Float>(Float.class, "arc")
-	{
-		@Override
-		public Float get(CircularAnimatedDrawable object){
-			return object.getCurrentSweepAngle();
-		}
+	/**
+	 * In flipbook mode the arc is blitted from a shared {@link SpinnerFlipbook} atlas instead of being
+	 * rasterized every frame. Falls back to drawing the arc when the ring is too large for the atlas cache.
+	 */
+	void setFlipbookEnabled(boolean flipbookEnabled){
+		this.flipbookEnabled = flipbookEnabled;
+		updateFlipbook();
+		invalidateSelf();
+	}
 
-		@Override
-		public void set(CircularAnimatedDrawable object, Float value){
-			object.setCurrentSweepAngle(value);
-		}
-	};
+	/**
+	 * Renders or looks up the atlas as soon as the bounds are known, so the first frame only blits.
+	 */
+	private void updateFlipbook(){
+		Rect bounds = getBounds();
+		flipbook = flipbookEnabled && !bounds.isEmpty()
+				? SpinnerFlipbook.obtain(Math.min(bounds.width(), bounds.height()), (int) borderWidth) : null;
+	}
 
-	private void setupAnimations(){
-		objectAnimatorAngle = ObjectAnimator.ofFloat(this, mAngleProperty, 360f);
-		objectAnimatorAngle.setInterpolator(ANGLE_INTERPOLATOR);
-		objectAnimatorAngle.setDuration(ANGLE_ANIMATOR_DURATION);
-		objectAnimatorAngle.setRepeatMode(ValueAnimator.RESTART);
-		objectAnimatorAngle.setRepeatCount(ValueAnimator.INFINITE);
+	boolean isFlipbookEnabled(){
+		return flipbookEnabled;
+	}
 
-		objectAnimatorSweep = ObjectAnimator.ofFloat(this, mSweepProperty, 360f - MIN_SWEEP_ANGLE * 2);
-		objectAnimatorSweep.setInterpolator(SWEEP_INTERPOLATOR);
-		objectAnimatorSweep.setDuration(SWEEP_ANIMATOR_DURATION);
-		objectAnimatorSweep.setRepeatMode(ValueAnimator.RESTART);
-		objectAnimatorSweep.setRepeatCount(ValueAnimator.INFINITE);
-		objectAnimatorSweep.addListener(new Animator.AnimatorListener()
-		{
-			@Override
-			public void onAnimationStart(Animator animation){
+	/**
+	 * @return atlas the arc is blitted from, null while the arc is drawn
+	 */
+	SpinnerFlipbook getFlipbook(){
+		return flipbook;
+	}
 
-			}
+	/**
+	 * Caps the number of redraws per second, 0 draws on every frame.
+	 */
+	void setMaxFrameRate(int maxFrameRate){
+		this.maxFrameRate = maxFrameRate;
+		updateFrameInterval();
+	}
 
-			@Override
-			public void onAnimationEnd(Animator animation){
+	/**
+	 * Redraws are skipped until an end of the arc moved by at least this many degrees. By default
+	 * the delta is derived from the bounds, so that frames moving the arc by less than a pixel are skipped.
+	 */
+	void setMinAngularDelta(float minAngularDelta){
+		this.minAngularDelta = minAngularDelta;
+	}
+
+	/**
+	 * Limits redraws to {@link #POWER_SAVING_FRAME_RATE}, on top of any {@link #setMaxFrameRate(int) cap}.
+	 */
+	void setPowerSaving(boolean powerSaving){
+		this.powerSaving = powerSaving;
+		updateFrameInterval();
+	}
+
+	boolean isPowerSaving(){
+		return powerSaving;
+	}
+
+	int getSuppressedInvalidationCount(){
+		return suppressedInvalidations;
+	}
 
-			}
+	/**
+	 * @return phase the next draw shows
+	 */
+	SpinnerPhase getDrawPhase(){
+		return drawPhase;
+	}
 
-			@Override
-			public void onAnimationCancel(Animator animation){
+	private void updateFrameInterval(){
+		int frameRate = maxFrameRate;
+		if(powerSaving && (frameRate <= 0 || frameRate > POWER_SAVING_FRAME_RATE)){
+			frameRate = POWER_SAVING_FRAME_RATE;
+		}
+		minFrameInterval = frameRate > 0 ? 1000 / frameRate : 0;
+	}
 
-			}
+	/**
+	 * In synchronized mode the drawable reads the ticker's shared phase instead of computing its own,
+	 * so every synchronized spinner shows the same arc and per-frame cost does not grow with their number.
+	 */
+	void setSynchronizedPhase(boolean synchronizedPhase){
+		this.synchronizedPhase = synchronizedPhase;
+		if(!synchronizedPhase){
+			drawPhase = phase;
+		}
+	}
 
-			@Override
-			public void onAnimationRepeat(Animator animation){
-				toggleAppearingMode();
-			}
-		});
+	boolean isSynchronizedPhase(){
+		return synchronizedPhase;
+	}
+
+	@Override
+	public void onFrame(long frameTimeMillis){
+		if(synchronizedPhase){
+			drawPhase = SpinnerTicker.getInstance().getSharedPhase(frameTimeMillis);
+		}
+		else {
+			phase.setElapsed(frameTimeMillis - startTime);
+		}
+
+		float startAngle = drawPhase.getArcStartAngle();
+		float endAngle = startAngle + drawPhase.getArcSweepAngle();
+		float angularDelta = minAngularDelta == AUTO_ANGULAR_DELTA ? pixelAngularDelta : minAngularDelta;
+		if(frameTimeMillis - lastInvalidateTime < minFrameInterval
+				|| (Math.abs(startAngle - lastStartAngle) < angularDelta
+				&& Math.abs(endAngle - lastEndAngle) < angularDelta)){
+			suppressedInvalidations++;
+			return;
+		}
+
+		lastInvalidateTime = frameTimeMillis;
+		lastStartAngle = startAngle;
+		lastEndAngle = endAngle;
+		// View.invalidateDrawable() turns this into a dirty rect of our bounds, not a full view invalidate
+		invalidateSelf();
 	}
 
 	@Override
@@ -163,8 +216,18 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 			return;
 		}
 		running = true;
-		objectAnimatorAngle.start();
-		objectAnimatorSweep.start();
+		SpinnerTicker ticker = SpinnerTicker.getInstance();
+		// resume where the spinner stopped, so pausing never makes the arc jump
+		startTime = ticker.now() - stoppedElapsed;
+		// the first frame can be drawn before the ticker's first callback
+		if(synchronizedPhase){
+			drawPhase = ticker.getSharedPhase(ticker.now());
+		}
+		else {
+			phase.setElapsed(stoppedElapsed);
+		}
+		lastInvalidateTime = Long.MIN_VALUE / 2;
+		ticker.register(this);
 		invalidateSelf();
 	}
 
@@ -174,8 +237,9 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 			return;
 		}
 		running = false;
-		objectAnimatorAngle.cancel();
-		objectAnimatorSweep.cancel();
+		SpinnerTicker ticker = SpinnerTicker.getInstance();
+		stoppedElapsed = ticker.now() - startTime;
+		ticker.unregister(this);
 		invalidateSelf();
 	}
 
@@ -184,27 +248,10 @@ class CircularAnimatedDrawable extends Drawable implements Animatable
 		return running;
 	}
 
-
-	@SuppressWarnings("WeakerAccess")
-	public void setCurrentGlobalAngle(float currentGlobalAngle){
-		this.currentGlobalAngle = currentGlobalAngle;
-		invalidateSelf();
-	}
-
-	@SuppressWarnings("WeakerAccess")
-	public float getCurrentGlobalAngle(){
-		return currentGlobalAngle;
+	/**
+	 * @return number of spinners currently ticking in this process, for leak checks in tests
+	 */
+	static int getRunningCount(){
+		return SpinnerTicker.getInstance().getRegisteredCount();
 	}
-
-	@SuppressWarnings("WeakerAccess")
-	public void setCurrentSweepAngle(float currentSweepAngle){
-		this.currentSweepAngle = currentSweepAngle;
-		invalidateSelf();
-	}
-
-	@SuppressWarnings("WeakerAccess")
-	public float getCurrentSweepAngle(){
-		return currentSweepAngle;
-	}
-
 }
@@ -1,38 +1,74 @@
 package com.dd;
 
 import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.res.ColorStateList;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.AnimatedVectorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.graphics.drawable.StateListDrawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.PowerManager;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.AppCompatButton;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.StateSet;
+import android.view.View;
+import android.view.animation.AnimationUtils;
 
 import com.dd.circular.progress.button.R;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class CircularProgressButton extends AppCompatButton
 {
-	public static final int IDLE_STATE_PROGRESS = 0;
-	public static final int ERROR_STATE_PROGRESS = -1;
-	public static final int SUCCESS_STATE_PROGRESS = 100;
-	public static final int INDETERMINATE_STATE_PROGRESS = 50;
+	public static final int IDLE_STATE_PROGRESS = Transition.IDLE_PROGRESS;
+	public static final int ERROR_STATE_PROGRESS = Transition.ERROR_PROGRESS;
+	/**
+	 * Equals the default max progress. With another {@link #setMaxProgress(int) max progress} the complete
+	 * state is requested by progress values from the max up, or explicitly by {@link #showComplete()}.
+	 */
+	public static final int SUCCESS_STATE_PROGRESS = Transition.SUCCESS_PROGRESS;
+	public static final int INDETERMINATE_STATE_PROGRESS = Transition.INDETERMINATE_PROGRESS;
+
+	public static final int MORPH_LAYER_AUTO = MorphingAnimation.LAYER_AUTO;
+	public static final int MORPH_LAYER_ALWAYS = MorphingAnimation.LAYER_ALWAYS;
+	public static final int MORPH_LAYER_NEVER = MorphingAnimation.LAYER_NEVER;
+
+	static final int DEFAULT_MAX_PROGRESS = 100;
+
+	// N_MR1, the first release that runs AnimatedVectorDrawable animations on the RenderThread
+	private static final int RENDER_THREAD_SPINNER_API = 25;
+	// cpb_spinner_vector draws its stroke at this fraction of the ring size, 4 in a 48 wide viewport
+	private static final int RENDER_THREAD_SPINNER_SIZE_PER_STROKE = 12;
+
+	private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
 
 	private StrokeGradientDrawable background;
+	private MorphingAnimation morphingAnimation;
 	private CircularAnimatedDrawable animatedDrawable;
+	private AnimatedVectorDrawable renderThreadSpinner;
 	private CircularProgressDrawable progressDrawable;
+	private final RingGeometry ringGeometry = new RingGeometry();
 
-	private ColorStateList idleColorState;
-	private ColorStateList completeColorState;
-	private ColorStateList errorColorState;
+	private ButtonSpec.StateColors idleColors;
+	private ButtonSpec.StateColors completeColors;
+	private ButtonSpec.StateColors errorColors;
 
 	private StateListDrawable idleStateDrawable;
 	private StateListDrawable completeStateDrawable;
@@ -54,17 +90,45 @@ public class CircularProgressButton extends AppCompatButton
 	private int paddingProgress;
 	private float cornerRadius;
 	private boolean indeterminateProgressMode;
+	private boolean indeterminateProgressSynchronized;
+	private boolean renderThreadSpinnerEnabled;
+	private boolean indeterminateProgressFlipbook;
+	private int morphLayerPolicy;
+
+	private int shownIcon;
+	private int shownIconWidth;
+	private boolean boundBeforeLayout;
+	private boolean sizeChanged;
+
+	private volatile ButtonMetrics metrics;
+	private ButtonMetrics.Listener metricsListener;
+	private State morphSourceState;
+	private long morphStartTime;
+
+	private StateTimeline timeline;
+	private boolean timelineSpinnerRunning;
+	private ProgressExtrapolator progressExtrapolator;
+	private int indeterminateProgressMaxFrameRate;
 	private boolean configurationChanged;
 
-	private enum State
-	{
-		PROGRESS, IDLE, COMPLETE, ERROR
-	}
-
 	private int maxProgress;
 	private int progress;
+	private float progressFraction;
+	private int sweepResolution;
+
+	private final CoalescedProgress pendingProgress = new CoalescedProgress(DEFAULT_MAX_PROGRESS);
+	private final AtomicBoolean pendingProgressPosted = new AtomicBoolean();
+
+	private ProgressAggregator progressAggregator;
+	private final AtomicBoolean aggregatedProgressPosted = new AtomicBoolean();
 
 	private boolean morphingInProgress;
+	private State morphTargetState;
+	private boolean transitionPosted;
+	private boolean attachedToWindow;
+	// as last dispatched, attaching reports it right after onAttachedToWindow()
+	private int windowVisibility = GONE;
+	private boolean powerSaveModeReceiverRegistered;
 
 	public CircularProgressButton(Context context){
 		super(context);
@@ -84,74 +148,58 @@ public class CircularProgressButton extends AppCompatButton
 	private void init(Context context, AttributeSet attributeSet){
 		strokeWidth = (int) getContext().getResources().getDimension(R.dimen.cpb_stroke_width);
 
+		maxProgress = DEFAULT_MAX_PROGRESS;
+		morphLayerPolicy = MorphingAnimation.LAYER_NEVER;
 		initAttributes(context, attributeSet);
+		pendingProgress.setMaxProgress(maxProgress);
 
-		maxProgress = 100;
 		state = State.IDLE;
-		stateManager = new StateManager(this);
+		stateManager = new StateManager(isEnabled());
 
 		setText(idleText);
 
 		initIdleStateDrawable();
 		setBackgroundCompat(idleStateDrawable);
+
+		morphingAnimation = new MorphingAnimation(this, background);
+		morphingAnimation.setLayerPolicy(morphLayerPolicy);
 	}
 
 	private void initErrorStateDrawable(){
-		int colorPressed = getPressedColor(errorColorState);
+		int colorPressed = errorColors.pressed;
 
-		StrokeGradientDrawable drawablePressed = createDrawable(colorPressed);
 		errorStateDrawable = new StateListDrawable();
 
-		errorStateDrawable.addState(new int[]{android.R.attr.state_pressed}, drawablePressed.getGradientDrawable());
+		errorStateDrawable.addState(new int[]{android.R.attr.state_pressed}, createStateDrawable(colorPressed));
 		errorStateDrawable.addState(StateSet.WILD_CARD, background.getGradientDrawable());
 	}
 
 	private void initCompleteStateDrawable(){
-		int colorPressed = getPressedColor(completeColorState);
+		int colorPressed = completeColors.pressed;
 
-		StrokeGradientDrawable drawablePressed = createDrawable(colorPressed);
 		completeStateDrawable = new StateListDrawable();
 
-		completeStateDrawable.addState(new int[]{android.R.attr.state_pressed}, drawablePressed.getGradientDrawable());
+		completeStateDrawable.addState(new int[]{android.R.attr.state_pressed}, createStateDrawable(colorPressed));
 		completeStateDrawable.addState(StateSet.WILD_CARD, background.getGradientDrawable());
 	}
 
 	private void initIdleStateDrawable(){
-		int colorNormal = getNormalColor(idleColorState);
-		int colorPressed = getPressedColor(idleColorState);
-		int colorFocused = getFocusedColor(idleColorState);
-		int colorDisabled = getDisabledColor(idleColorState);
+		int colorNormal = idleColors.normal;
+		int colorPressed = idleColors.pressed;
+		int colorFocused = idleColors.focused;
+		int colorDisabled = idleColors.disabled;
 		if(background == null){
 			background = createDrawable(colorNormal);
 		}
 
-		StrokeGradientDrawable drawableDisabled = createDrawable(colorDisabled);
-		StrokeGradientDrawable drawableFocused = createDrawable(colorFocused);
-		StrokeGradientDrawable drawablePressed = createDrawable(colorPressed);
 		idleStateDrawable = new StateListDrawable();
 
-		idleStateDrawable.addState(new int[]{android.R.attr.state_pressed}, drawablePressed.getGradientDrawable());
-		idleStateDrawable.addState(new int[]{android.R.attr.state_focused}, drawableFocused.getGradientDrawable());
-		idleStateDrawable.addState(new int[]{-android.R.attr.state_enabled}, drawableDisabled.getGradientDrawable());
+		idleStateDrawable.addState(new int[]{android.R.attr.state_pressed}, createStateDrawable(colorPressed));
+		idleStateDrawable.addState(new int[]{android.R.attr.state_focused}, createStateDrawable(colorFocused));
+		idleStateDrawable.addState(new int[]{-android.R.attr.state_enabled}, createStateDrawable(colorDisabled));
 		idleStateDrawable.addState(StateSet.WILD_CARD, background.getGradientDrawable());
 	}
 
-	private int getNormalColor(ColorStateList colorStateList){
-		return colorStateList.getColorForState(new int[]{android.R.attr.state_enabled}, 0);
-	}
-
-	private int getPressedColor(ColorStateList colorStateList){
-		return colorStateList.getColorForState(new int[]{android.R.attr.state_pressed}, 0);
-	}
-
-	private int getFocusedColor(ColorStateList colorStateList){
-		return colorStateList.getColorForState(new int[]{android.R.attr.state_focused}, 0);
-	}
-
-	private int getDisabledColor(ColorStateList colorStateList){
-		return colorStateList.getColorForState(new int[]{-android.R.attr.state_enabled}, 0);
-	}
-
 	private StrokeGradientDrawable createDrawable(int color){
 		GradientDrawable drawable = (GradientDrawable)
 				ViewUtils.drawable(R.drawable.cpb_background, this).mutate();
@@ -164,68 +212,78 @@ public class CircularProgressButton extends AppCompatButton
 		return strokeGradientDrawable;
 	}
 
+	/**
+	 * Pressed, focused and disabled drawables never morph, so they are shared between all buttons
+	 * through {@link StateDrawableCache}. Only {@link #background} is mutated per instance.
+	 */
+	private Drawable createStateDrawable(int color){
+		return StateDrawableCache.obtain(this, color, cornerRadius, strokeWidth);
+	}
+
 	@Override
 	protected void drawableStateChanged(){
+		Tracer.beginSection(Tracer.DRAWABLE_STATE_CHANGED);
 		if(state == State.COMPLETE){
-			initCompleteStateDrawable();
-			setBackgroundCompat(completeStateDrawable);
+			if(completeStateDrawable == null){
+				initCompleteStateDrawable();
+			}
+			setStateBackground(completeStateDrawable);
 		}
 		else if(state == State.IDLE){
-			initIdleStateDrawable();
-			setBackgroundCompat(idleStateDrawable);
+			if(idleStateDrawable == null){
+				initIdleStateDrawable();
+			}
+			setStateBackground(idleStateDrawable);
 		}
 		else if(state == State.ERROR){
-			initErrorStateDrawable();
-			setBackgroundCompat(errorStateDrawable);
+			if(errorStateDrawable == null){
+				initErrorStateDrawable();
+			}
+			setStateBackground(errorStateDrawable);
 		}
 
 		if(state != State.PROGRESS){
 			super.drawableStateChanged();
 		}
+		Tracer.endSection();
+	}
+
+	/**
+	 * All state drawables share {@link #background} as their default child, which only invalidates the
+	 * container that added it last. Points it back at the container being shown, otherwise morphs after a
+	 * state round trip would not redraw.
+	 */
+	private void setStateBackground(StateListDrawable stateDrawable){
+		setBackgroundCompat(stateDrawable);
+		background.getGradientDrawable().setCallback(stateDrawable);
 	}
 
 	private void initAttributes(Context context, AttributeSet attributeSet){
-		TypedArray attr = getTypedArray(context, attributeSet, R.styleable.CircularProgressButton);
-		if(attr == null){
+		ButtonSpec spec = ButtonSpec.obtain(this, context, attributeSet);
+		if(spec == null){
 			return;
 		}
 
-		try {
-
-			idleText = attr.getString(R.styleable.CircularProgressButton_cpb_textIdle);
-			completeText = attr.getString(R.styleable.CircularProgressButton_cpb_textComplete);
-			errorText = attr.getString(R.styleable.CircularProgressButton_cpb_textError);
-			progressText = attr.getString(R.styleable.CircularProgressButton_cpb_textProgress);
-
-			iconComplete = attr.getResourceId(R.styleable.CircularProgressButton_cpb_iconComplete, 0);
-			iconError = attr.getResourceId(R.styleable.CircularProgressButton_cpb_iconError, 0);
-			cornerRadius = attr.getDimension(R.styleable.CircularProgressButton_cpb_cornerRadius, 0);
-			paddingProgress = attr.getDimensionPixelSize(R.styleable.CircularProgressButton_cpb_paddingProgress, 0);
-
-			int blue = ViewUtils.color(R.color.cpb_blue, this);
-			int white = ViewUtils.color(R.color.cpb_white, this);
-			int grey = ViewUtils.color(R.color.cpb_grey, this);
-
-			int idleStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorIdle,
-					R.color.cpb_idle_state_selector);
-			idleColorState = ViewUtils.colorStateList(idleStateSelector, this);
-
-			int completeStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorComplete,
-					R.color.cpb_complete_state_selector);
-			completeColorState = ViewUtils.colorStateList(completeStateSelector, this);
-
-			int errorStateSelector = attr.getResourceId(R.styleable.CircularProgressButton_cpb_selectorError,
-					R.color.cpb_error_state_selector);
-			errorColorState = ViewUtils.colorStateList(errorStateSelector, this);
-
-			colorProgress = attr.getColor(R.styleable.CircularProgressButton_cpb_colorProgress, white);
-			colorIndicator = attr.getColor(R.styleable.CircularProgressButton_cpb_colorIndicator, blue);
-			colorIndicatorBackground =
-					attr.getColor(R.styleable.CircularProgressButton_cpb_colorIndicatorBackground, grey);
-		}
-		finally {
-			attr.recycle();
-		}
+		idleText = spec.idleText;
+		completeText = spec.completeText;
+		errorText = spec.errorText;
+		progressText = spec.progressText;
+
+		iconComplete = spec.iconComplete;
+		iconError = spec.iconError;
+		cornerRadius = spec.cornerRadius;
+		paddingProgress = spec.paddingProgress;
+		morphLayerPolicy = spec.morphLayerPolicy;
+		maxProgress = checkMaxProgress(spec.maxProgress);
+		sweepResolution = spec.sweepResolution;
+
+		idleColors = spec.idleColors;
+		completeColors = spec.completeColors;
+		errorColors = spec.errorColors;
+
+		colorProgress = spec.colorProgress;
+		colorIndicator = spec.colorIndicator;
+		colorIndicatorBackground = spec.colorIndicatorBackground;
 	}
 
 	protected TypedArray getTypedArray(Context context, AttributeSet attributeSet, int[] attr){
@@ -234,48 +292,202 @@ public class CircularProgressButton extends AppCompatButton
 
 	@Override
 	protected void onDraw(Canvas canvas){
-		super.onDraw(canvas);
+		Tracer.beginSection(Tracer.DRAW);
+		ButtonMetrics metrics = this.metrics;
+		long drawStart = metrics != null ? System.nanoTime() : 0;
+		boolean ringVisible = progress > 0 && state == State.PROGRESS && !morphingInProgress;
+
+		// while the ring is shown there is usually no text, skip TextView's layout and text drawing then
+		if(!ringVisible || getText().length() > 0){
+			super.onDraw(canvas);
+		}
 
-		if(progress > 0 && state == State.PROGRESS && !morphingInProgress){
+		if(ringVisible){
+			long ringStart = metrics != null ? System.nanoTime() : 0;
 			if(indeterminateProgressMode){
+				Tracer.beginSection(Tracer.DRAW_INDETERMINATE_PROGRESS);
 				drawIndeterminateProgress(canvas);
+				Tracer.endSection();
+				if(metrics != null){
+					metrics.recordSpinnerDraw(System.nanoTime() - ringStart);
+				}
 			}
 			else {
+				Tracer.beginSection(Tracer.DRAW_PROGRESS);
 				drawProgress(canvas);
+				Tracer.endSection();
+				if(metrics != null){
+					metrics.recordProgressDraw(System.nanoTime() - ringStart);
+				}
 			}
 		}
+
+		if(metrics != null){
+			metrics.recordDraw(System.nanoTime() - drawStart);
+		}
+		Tracer.endSection();
 	}
 
 	private void drawIndeterminateProgress(Canvas canvas){
-		if(animatedDrawable == null){
-			int offset = (getWidth() - getHeight()) / 2;
-			animatedDrawable = new CircularAnimatedDrawable(colorIndicator, strokeWidth);
-			int left = offset + paddingProgress;
-			int right = getWidth() - offset - paddingProgress;
-			int bottom = getHeight() - paddingProgress;
-			int top = paddingProgress;
-			animatedDrawable.setBounds(left, top, right, bottom);
-			animatedDrawable.setCallback(this);
-			animatedDrawable.start();
-		}
-		else {
-			animatedDrawable.draw(canvas);
+		if(isRenderThreadSpinnerActive()){
+			ensureRenderThreadSpinner();
+			if(renderThreadSpinner != null){
+				renderThreadSpinner.draw(canvas);
+			}
+			return;
 		}
+
+		ensureAnimatedDrawable();
+		animatedDrawable.draw(canvas);
 	}
 
 	private void drawProgress(Canvas canvas){
-		if(progressDrawable == null){
-			int offset = (getWidth() - getHeight()) / 2;
-			int size = getHeight() - paddingProgress * 2;
-			progressDrawable = new CircularProgressDrawable(size, strokeWidth, colorIndicator);
-			int left = offset + paddingProgress;
-			progressDrawable.setBounds(left, paddingProgress, left, paddingProgress);
-		}
-		float sweepAngle = (360f / maxProgress) * progress;
-		progressDrawable.setSweepAngle(sweepAngle);
+		ensureProgressDrawable();
+		if(progressExtrapolator != null){
+			updateProgressSweep();
+			if(progressExtrapolator.isAdvancing()){
+				Rect ring = progressDrawable.getBounds();
+				ViewCompat.postInvalidateOnAnimation(this, ring.left, ring.top, ring.right, ring.bottom);
+			}
+		}
 		progressDrawable.draw(canvas);
 	}
 
+	/**
+	 * Builds everything the first progress frame needs ahead of time: the ring drawables for the current
+	 * progress mode, the spinner atlas in flipbook mode and the color ramps of the morph into progress.
+	 * Cheap once done, so it can be called from an {@link android.os.MessageQueue.IdleHandler} after the
+	 * button has been laid out. Does nothing before the first layout.
+	 */
+	public void prewarm(){
+		if(getWidth() == 0){
+			return;
+		}
+		ensureProgressStateDrawables();
+		ColorRamp.obtain(idleColors.normal, colorProgress);
+		ColorRamp.obtain(idleColors.normal, colorIndicatorBackground);
+	}
+
+	/**
+	 * Builds the ring drawables of the current progress mode, so entering the progress state does not
+	 * allocate them from {@link #onDraw(Canvas)}.
+	 */
+	private void ensureProgressStateDrawables(){
+		if(getWidth() == 0){
+			return;
+		}
+		if(!indeterminateProgressMode){
+			ensureProgressDrawable();
+		}
+		// hardware acceleration is only known once attached, before that build the spinner it would allow
+		else if(attachedToWindow ? isRenderThreadSpinnerActive() : isRenderThreadSpinnerUsable()){
+			ensureRenderThreadSpinner();
+		}
+		else {
+			ensureAnimatedDrawable();
+		}
+	}
+
+	private void ensureAnimatedDrawable(){
+		if(animatedDrawable != null){
+			return;
+		}
+		updateRingGeometry();
+		animatedDrawable = new CircularAnimatedDrawable(colorIndicator, strokeWidth);
+		setRingBounds(animatedDrawable);
+		animatedDrawable.setCallback(this);
+		animatedDrawable.setSynchronizedPhase(indeterminateProgressSynchronized);
+		animatedDrawable.setMaxFrameRate(indeterminateProgressMaxFrameRate);
+		animatedDrawable.setFlipbookEnabled(indeterminateProgressFlipbook);
+		updateSpinnerPowerSaving();
+		updateSpinnerRunning();
+	}
+
+	@TargetApi(RENDER_THREAD_SPINNER_API)
+	private void ensureRenderThreadSpinner(){
+		if(renderThreadSpinner != null){
+			return;
+		}
+		updateRingGeometry();
+		renderThreadSpinner = (AnimatedVectorDrawable) getContext().getDrawable(R.drawable.cpb_spinner_animated);
+		if(renderThreadSpinner == null){
+			return;
+		}
+		setRingBounds(renderThreadSpinner);
+		renderThreadSpinner.setTint(colorIndicator);
+		renderThreadSpinner.setCallback(this);
+		updateSpinnerRunning();
+	}
+
+	private void ensureProgressDrawable(){
+		if(progressDrawable != null){
+			return;
+		}
+		updateRingGeometry();
+		progressDrawable = new CircularProgressDrawable(strokeWidth, colorIndicator);
+		progressDrawable.setSweepSteps(sweepResolution);
+		setRingBounds(progressDrawable);
+		progressDrawable.setSweepAngle(getSweepAngle());
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh){
+		super.onSizeChanged(w, h, oldw, oldh);
+		sizeChanged = true;
+		updateRingGeometry();
+	}
+
+	/**
+	 * Recomputes the ring square when the size, padding or stroke changed and moves the existing ring
+	 * drawables there, so resized or recycled buttons never draw at stale coordinates.
+	 */
+	private void updateRingGeometry(){
+		if(!ringGeometry.set(getWidth(), getHeight(), paddingProgress, strokeWidth)){
+			return;
+		}
+		setRingBounds(progressDrawable);
+		setRingBounds(animatedDrawable);
+		setRingBounds(renderThreadSpinner);
+		// the new size may switch between the RenderThread and the regular spinner
+		updateSpinnerRunning();
+	}
+
+	private void setRingBounds(Drawable drawable){
+		if(drawable != null){
+			drawable.setBounds(ringGeometry.getLeft(), ringGeometry.getTop(), ringGeometry.getRight(),
+					ringGeometry.getBottom());
+		}
+	}
+
+	/**
+	 * Invalidates only the square of the progress ring instead of the whole button.
+	 */
+	private void invalidateProgressRing(){
+		if(progressDrawable != null){
+			invalidate(progressDrawable.getBounds());
+		}
+		else {
+			invalidate();
+		}
+	}
+
+	private float getSweepAngle(){
+		if(progressExtrapolator != null){
+			float displayed = progressExtrapolator.valueAt(AnimationUtils.currentAnimationTimeMillis());
+			return ProgressSweep.angle(displayed);
+		}
+		return ProgressSweep.angle(progressFraction);
+	}
+
+	/**
+	 * Pushes the current progress into {@link #progressDrawable}.
+	 *
+	 * @return true if the visible arc changed and the view has to be redrawn
+	 */
+	private boolean updateProgressSweep(){
+		return progressDrawable == null || progressDrawable.setSweepAngle(getSweepAngle());
+	}
+
 	@SuppressWarnings("unused")
 	public boolean isIndeterminateProgressMode(){
 		return indeterminateProgressMode;
@@ -285,18 +497,316 @@ public class CircularProgressButton extends AppCompatButton
 		this.indeterminateProgressMode = indeterminateProgressMode;
 	}
 
+	@SuppressWarnings("unused")
+	public boolean isProgressExtrapolationEnabled(){
+		return progressExtrapolator != null;
+	}
+
+	/**
+	 * When enabled, the determinate ring estimates the progress rate from recent {@link #setProgress(int, boolean)}
+	 * calls and keeps advancing smoothly between them, so sparse updates do not show up as jumps. The ring
+	 * trails the reported progress by about one update interval and never runs ahead of it.
+	 */
+	@SuppressWarnings("unused")
+	public void setProgressExtrapolationEnabled(boolean enabled){
+		if(!enabled){
+			progressExtrapolator = null;
+		}
+		else if(progressExtrapolator == null){
+			progressExtrapolator = new ProgressExtrapolator();
+			progressExtrapolator.reset(progressFraction, AnimationUtils.currentAnimationTimeMillis());
+		}
+		if(updateProgressSweep()){
+			invalidateProgressRing();
+		}
+	}
+
+	/**
+	 * Enables metrics for this button: transition durations, superseded progress updates and draw times are
+	 * aggregated into {@link ButtonMetrics}, and the listener is told about every finished morph.
+	 * Pass null (the default) to disable metrics again.
+	 */
+	@SuppressWarnings("unused")
+	public void setMetricsListener(ButtonMetrics.Listener listener){
+		metricsListener = listener;
+		if(listener == null){
+			metrics = null;
+		}
+		else if(metrics == null){
+			metrics = new ButtonMetrics(stateManager);
+		}
+	}
+
+	/**
+	 * @return metrics of this button, or null if no {@link #setMetricsListener(ButtonMetrics.Listener) listener}
+	 * is set
+	 */
+	@SuppressWarnings("unused")
+	public ButtonMetrics getMetrics(){
+		return metrics;
+	}
+
+	/**
+	 * Keeps the last {@code capacity} progress requests, morph starts and ends and spinner starts and stops
+	 * of this button in memory, see {@link #writeStateTimeline(Appendable)}. 0 (the default) records nothing.
+	 */
+	@SuppressWarnings("unused")
+	public void setStateTimelineCapacity(int capacity){
+		if(capacity <= 0){
+			timeline = null;
+		}
+		else if(timeline == null || timeline.getCapacity() != capacity){
+			timeline = new StateTimeline(capacity);
+			timelineSpinnerRunning = false;
+		}
+	}
+
+	/**
+	 * Writes the recorded state timeline as Chrome trace-event JSON, to be opened in chrome://tracing or
+	 * Perfetto next to a systrace of the app.
+	 */
+	@SuppressWarnings("unused")
+	public void writeStateTimeline(Appendable out) throws IOException{
+		if(timeline != null){
+			timeline.writeChromeTrace(out);
+		}
+		else {
+			out.append("{\"traceEvents\":[]}");
+		}
+	}
+
+	@SuppressWarnings("unused")
+	public int getMorphLayerPolicy(){
+		return morphLayerPolicy;
+	}
+
+	/**
+	 * Controls whether the button is moved to a hardware layer while it morphs between states:
+	 * {@link #MORPH_LAYER_NEVER} (the default), {@link #MORPH_LAYER_ALWAYS} or {@link #MORPH_LAYER_AUTO},
+	 * which promotes hardware accelerated buttons that are small compared to the display and have no layer
+	 * type of their own. The previous layer type is restored when the morph ends.
+	 * <p>
+	 * A morph changes the bounds, colors and corners of the background every frame, so the layer is
+	 * re-rendered every frame and composited on top. Only opt in when the button has expensive static
+	 * content of its own, such as shadows or a complex icon, that the layer saves redrawing.
+	 */
+	@SuppressWarnings("unused")
+	public void setMorphLayerPolicy(int morphLayerPolicy){
+		this.morphLayerPolicy = morphLayerPolicy;
+		morphingAnimation.setLayerPolicy(morphLayerPolicy);
+	}
+
+	@SuppressWarnings("unused")
+	public boolean isRenderThreadSpinnerEnabled(){
+		return renderThreadSpinnerEnabled;
+	}
+
+	/**
+	 * When enabled on API 25+ with hardware acceleration, the indeterminate spinner is an
+	 * {@link AnimatedVectorDrawable} animated on the RenderThread, so it keeps spinning while the main thread
+	 * is busy. The vector scales with the ring, so it is only used where its stroke comes out within a pixel
+	 * of the stroke width, for rings about 12 times as large as the stroke (48dp with the default 4dp).
+	 * On older releases, without hardware acceleration or for other ring sizes the regular spinner is used.
+	 */
+	@SuppressWarnings("unused")
+	public void setRenderThreadSpinnerEnabled(boolean enabled){
+		renderThreadSpinnerEnabled = enabled;
+		updateSpinnerRunning();
+		invalidate();
+	}
+
+	/**
+	 * @return true if the indeterminate spinner is currently driven by the RenderThread
+	 */
+	public boolean isRenderThreadSpinnerActive(){
+		return isRenderThreadSpinnerUsable() && isHardwareAccelerated();
+	}
+
+	/**
+	 * @return true if the RenderThread spinner is used once the button is attached to an accelerated window
+	 */
+	private boolean isRenderThreadSpinnerUsable(){
+		return renderThreadSpinnerEnabled && Build.VERSION.SDK_INT >= RENDER_THREAD_SPINNER_API
+				&& isRenderThreadSpinnerStrokeExact();
+	}
+
+	private boolean isRenderThreadSpinnerStrokeExact(){
+		int strokeError = ringGeometry.getSize() - strokeWidth * RENDER_THREAD_SPINNER_SIZE_PER_STROKE;
+		return ringGeometry.getSize() > 0 && Math.abs(strokeError) <= RENDER_THREAD_SPINNER_SIZE_PER_STROKE;
+	}
+
+	@SuppressWarnings("unused")
+	public boolean isIndeterminateProgressSynchronized(){
+		return indeterminateProgressSynchronized;
+	}
+
+	/**
+	 * When enabled, the indeterminate spinner of this button shares its phase with every other synchronized
+	 * spinner in the process: all of them show the same arc and the angle computation runs once per frame
+	 * regardless of how many are visible.
+	 */
+	@SuppressWarnings("unused")
+	public void setIndeterminateProgressSynchronized(boolean indeterminateProgressSynchronized){
+		this.indeterminateProgressSynchronized = indeterminateProgressSynchronized;
+		if(animatedDrawable != null){
+			animatedDrawable.setSynchronizedPhase(indeterminateProgressSynchronized);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	public boolean isIndeterminateProgressFlipbook(){
+		return indeterminateProgressFlipbook;
+	}
+
+	/**
+	 * Meant for low-RAM, software rendered devices: instead of rasterizing the spinner arc every frame, one
+	 * appear/disappear cycle is rendered once into an atlas shared by all spinners of the same size and
+	 * stroke, and frames are blitted from it. Rings too large for the atlas cache keep drawing the arc.
+	 */
+	@SuppressWarnings("unused")
+	public void setIndeterminateProgressFlipbook(boolean indeterminateProgressFlipbook){
+		this.indeterminateProgressFlipbook = indeterminateProgressFlipbook;
+		if(animatedDrawable != null){
+			animatedDrawable.setFlipbookEnabled(indeterminateProgressFlipbook);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	public int getIndeterminateProgressMaxFrameRate(){
+		return indeterminateProgressMaxFrameRate;
+	}
+
+	/**
+	 * Caps how often the indeterminate spinner redraws per second, 0 (the default) redraws on every frame.
+	 * Independently of this cap the spinner drops to a lower rate while battery saver is on or the window
+	 * is not focused, and never redraws for frames that move the arc by less than a pixel.
+	 */
+	@SuppressWarnings("unused")
+	public void setIndeterminateProgressMaxFrameRate(int maxFrameRate){
+		this.indeterminateProgressMaxFrameRate = maxFrameRate;
+		if(animatedDrawable != null){
+			animatedDrawable.setMaxFrameRate(maxFrameRate);
+		}
+	}
+
+	/**
+	 * The spinner only ticks while it can actually be seen: in indeterminate progress state, attached,
+	 * shown and in a visible window. Its phase continues where it stopped when it is resumed.
+	 */
+	private void updateSpinnerRunning(){
+		boolean visible = state == State.PROGRESS && indeterminateProgressMode && !morphingInProgress
+				&& attachedToWindow && isShown() && windowVisibility == VISIBLE;
+		boolean renderThreadSpinnerActive = isRenderThreadSpinnerActive();
+		updateRunning(animatedDrawable, visible && !renderThreadSpinnerActive);
+		updateRunning(renderThreadSpinner, visible && renderThreadSpinnerActive);
+		updatePowerSaveModeReceiver(visible && !renderThreadSpinnerActive && animatedDrawable != null);
+
+		boolean running = visible && (animatedDrawable != null || renderThreadSpinner != null);
+		if(timeline != null && running != timelineSpinnerRunning){
+			timeline.record(running ? StateTimeline.EVENT_SPINNER_START : StateTimeline.EVENT_SPINNER_STOP, 0,
+					System.nanoTime());
+		}
+		timelineSpinnerRunning = running;
+	}
+
+	private static void updateRunning(Animatable animatable, boolean running){
+		if(animatable == null || animatable.isRunning() == running){
+			return;
+		}
+		if(running){
+			animatable.start();
+		}
+		else {
+			animatable.stop();
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow(){
+		super.onAttachedToWindow();
+		attachedToWindow = true;
+		if(state == State.PROGRESS){
+			// the window decides between the RenderThread and the regular spinner, build the one it picks
+			ensureProgressStateDrawables();
+		}
+		updateSpinnerRunning();
+	}
+
+	@Override
+	protected void onDetachedFromWindow(){
+		super.onDetachedFromWindow();
+		attachedToWindow = false;
+		updateSpinnerRunning();
+	}
+
+	@Override
+	protected void onVisibilityChanged(@NonNull View changedView, int visibility){
+		super.onVisibilityChanged(changedView, visibility);
+		updateSpinnerRunning();
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility){
+		super.onWindowVisibilityChanged(visibility);
+		windowVisibility = visibility;
+		updateSpinnerRunning();
+	}
+
+	@Override
+	public void onWindowFocusChanged(boolean hasWindowFocus){
+		super.onWindowFocusChanged(hasWindowFocus);
+		updateSpinnerPowerSaving();
+	}
+
+	private void updateSpinnerPowerSaving(){
+		if(animatedDrawable != null){
+			animatedDrawable.setPowerSaving(!hasWindowFocus() || ViewUtils.isPowerSaveMode(this));
+		}
+	}
+
+	/**
+	 * Follows battery saver while the spinner runs. The state is read again on every start, it may have
+	 * changed while the spinner was paused.
+	 */
+	@SuppressLint("NewApi")
+	private void updatePowerSaveModeReceiver(boolean register){
+		if(register == powerSaveModeReceiverRegistered || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP){
+			return;
+		}
+		powerSaveModeReceiverRegistered = register;
+		if(register){
+			getContext().registerReceiver(powerSaveModeReceiver,
+					new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+			updateSpinnerPowerSaving();
+		}
+		else {
+			getContext().unregisterReceiver(powerSaveModeReceiver);
+		}
+	}
+
+	private final BroadcastReceiver powerSaveModeReceiver = new BroadcastReceiver()
+	{
+		@Override
+		public void onReceive(Context context, Intent intent){
+			updateSpinnerPowerSaving();
+		}
+	};
+
 	@Override
 	protected boolean verifyDrawable(@NonNull Drawable who){
-		return who == animatedDrawable || super.verifyDrawable(who);
+		return who == animatedDrawable || who == renderThreadSpinner || super.verifyDrawable(who);
 	}
 
 	private MorphingAnimation createMorphing(){
 		morphingInProgress = true;
+		updateSpinnerRunning();
 
-		MorphingAnimation animation = new MorphingAnimation(this, background);
+		MorphingAnimation animation = morphingAnimation;
 		animation.setFromCornerRadius(cornerRadius);
 		animation.setToCornerRadius(cornerRadius);
 
+		animation.setPadding(0);
+
 		animation.setFromWidth(getWidth());
 		animation.setToWidth(getWidth());
 
@@ -314,8 +824,9 @@ public class CircularProgressButton extends AppCompatButton
 
 	private MorphingAnimation createProgressMorphing(float fromCorner, float toCorner, int fromWidth, int toWidth){
 		morphingInProgress = true;
+		updateSpinnerRunning();
 
-		MorphingAnimation animation = new MorphingAnimation(this, background);
+		MorphingAnimation animation = morphingAnimation;
 		animation.setFromCornerRadius(fromCorner);
 		animation.setToCornerRadius(toCorner);
 
@@ -336,14 +847,15 @@ public class CircularProgressButton extends AppCompatButton
 		return animation;
 	}
 
-	private void morphToProgress(int fromProgress){
+	private void morphToProgress(){
 		setWidth(getWidth());
 		setText(progressText);
+		ensureProgressStateDrawables();
 
 		MorphingAnimation animation = createProgressMorphing(cornerRadius, getHeight(), getWidth(), getHeight());
 
-		int currentColor = getNormalColor(idleColorState);
-		if(fromProgress == 100) currentColor = getNormalColor(completeColorState);
+		int currentColor = idleColors.normal;
+		if(state == State.COMPLETE) currentColor = completeColors.normal;
 		animation.setFromColor(currentColor);
 		animation.setToColor(colorProgress);
 
@@ -361,8 +873,14 @@ public class CircularProgressButton extends AppCompatButton
 		public void onAnimationEnd(){
 			morphingInProgress = false;
 			state = State.PROGRESS;
+			updateSpinnerRunning();
+			reportTransition();
+			if(progressExtrapolator != null){
+				progressExtrapolator.reset(progressFraction, AnimationUtils.currentAnimationTimeMillis());
+			}
+			updateProgressSweep();
 
-			stateManager.checkState(CircularProgressButton.this);
+			checkEnabledState();
 		}
 	};
 
@@ -370,10 +888,10 @@ public class CircularProgressButton extends AppCompatButton
 		MorphingAnimation animation = createProgressMorphing(getHeight(), cornerRadius, getHeight(), getWidth());
 
 		animation.setFromColor(colorProgress);
-		animation.setToColor(getNormalColor(completeColorState));
+		animation.setToColor(completeColors.normal);
 
 		animation.setFromStrokeColor(colorIndicator);
-		animation.setToStrokeColor(getNormalColor(completeColorState));
+		animation.setToStrokeColor(completeColors.normal);
 		animation.setListener(mCompleteStateListener);
 
 		animation.start();
@@ -384,11 +902,11 @@ public class CircularProgressButton extends AppCompatButton
 	private void morphIdleToComplete(){
 		MorphingAnimation animation = createMorphing();
 
-		animation.setFromColor(getNormalColor(idleColorState));
-		animation.setToColor(getNormalColor(completeColorState));
+		animation.setFromColor(idleColors.normal);
+		animation.setToColor(completeColors.normal);
 
-		animation.setFromStrokeColor(getNormalColor(idleColorState));
-		animation.setToStrokeColor(getNormalColor(completeColorState));
+		animation.setFromStrokeColor(idleColors.normal);
+		animation.setToStrokeColor(completeColors.normal);
 		animation.setListener(mCompleteStateListener);
 
 		animation.start();
@@ -398,11 +916,11 @@ public class CircularProgressButton extends AppCompatButton
 	private void morphErrorToComplete(){
 		MorphingAnimation animation = createMorphing();
 
-		animation.setFromColor(getNormalColor(errorColorState));
-		animation.setToColor(getNormalColor(completeColorState));
+		animation.setFromColor(errorColors.normal);
+		animation.setToColor(completeColors.normal);
 
-		animation.setFromStrokeColor(getNormalColor(errorColorState));
-		animation.setToStrokeColor(getNormalColor(completeColorState));
+		animation.setFromStrokeColor(errorColors.normal);
+		animation.setToStrokeColor(completeColors.normal);
 		animation.setListener(mCompleteStateListener);
 
 		animation.start();
@@ -422,19 +940,21 @@ public class CircularProgressButton extends AppCompatButton
 			}
 			morphingInProgress = false;
 			state = State.COMPLETE;
+			updateSpinnerRunning();
+			reportTransition();
 
-			stateManager.checkState(CircularProgressButton.this);
+			checkEnabledState();
 		}
 	};
 
 	private void morphCompleteToIdle(){
 		MorphingAnimation animation = createMorphing();
 
-		animation.setFromColor(getNormalColor(completeColorState));
-		animation.setToColor(getNormalColor(idleColorState));
+		animation.setFromColor(completeColors.normal);
+		animation.setToColor(idleColors.normal);
 
-		animation.setFromStrokeColor(getNormalColor(completeColorState));
-		animation.setToStrokeColor(getNormalColor(idleColorState));
+		animation.setFromStrokeColor(completeColors.normal);
+		animation.setToStrokeColor(idleColors.normal);
 		animation.setListener(mIdleStateListener);
 
 		animation.start();
@@ -444,11 +964,11 @@ public class CircularProgressButton extends AppCompatButton
 	private void morphErrorToIdle(){
 		MorphingAnimation animation = createMorphing();
 
-		animation.setFromColor(getNormalColor(errorColorState));
-		animation.setToColor(getNormalColor(idleColorState));
+		animation.setFromColor(errorColors.normal);
+		animation.setToColor(idleColors.normal);
 
-		animation.setFromStrokeColor(getNormalColor(errorColorState));
-		animation.setToStrokeColor(getNormalColor(idleColorState));
+		animation.setFromStrokeColor(errorColors.normal);
+		animation.setToStrokeColor(idleColors.normal);
 		animation.setListener(mIdleStateListener);
 
 		animation.start();
@@ -463,19 +983,21 @@ public class CircularProgressButton extends AppCompatButton
 			setText(idleText);
 			morphingInProgress = false;
 			state = State.IDLE;
+			updateSpinnerRunning();
+			reportTransition();
 
-			stateManager.checkState(CircularProgressButton.this);
+			checkEnabledState();
 		}
 	};
 
 	private void morphIdleToError(){
 		MorphingAnimation animation = createMorphing();
 
-		animation.setFromColor(getNormalColor(idleColorState));
-		animation.setToColor(getNormalColor(errorColorState));
+		animation.setFromColor(idleColors.normal);
+		animation.setToColor(errorColors.normal);
 
-		animation.setFromStrokeColor(getNormalColor(idleColorState));
-		animation.setToStrokeColor(getNormalColor(errorColorState));
+		animation.setFromStrokeColor(idleColors.normal);
+		animation.setToStrokeColor(errorColors.normal);
 		animation.setListener(mErrorStateListener);
 
 		animation.start();
@@ -486,10 +1008,10 @@ public class CircularProgressButton extends AppCompatButton
 		MorphingAnimation animation = createProgressMorphing(getHeight(), cornerRadius, getHeight(), getWidth());
 
 		animation.setFromColor(colorProgress);
-		animation.setToColor(getNormalColor(errorColorState));
+		animation.setToColor(errorColors.normal);
 
 		animation.setFromStrokeColor(colorIndicator);
-		animation.setToStrokeColor(getNormalColor(errorColorState));
+		animation.setToStrokeColor(errorColors.normal);
 		animation.setListener(mErrorStateListener);
 
 		animation.start();
@@ -508,8 +1030,10 @@ public class CircularProgressButton extends AppCompatButton
 			}
 			morphingInProgress = false;
 			state = State.ERROR;
+			updateSpinnerRunning();
+			reportTransition();
 
-			stateManager.checkState(CircularProgressButton.this);
+			checkEnabledState();
 		}
 	};
 
@@ -517,27 +1041,67 @@ public class CircularProgressButton extends AppCompatButton
 		MorphingAnimation animation = createProgressMorphing(getHeight(), cornerRadius, getHeight(), getWidth());
 
 		animation.setFromColor(colorProgress);
-		animation.setToColor(getNormalColor(idleColorState));
+		animation.setToColor(idleColors.normal);
 
 		animation.setFromStrokeColor(colorIndicator);
-		animation.setToStrokeColor(getNormalColor(idleColorState));
+		animation.setToStrokeColor(idleColors.normal);
 		animation.setListener(mIdleStateListener);
 
 		animation.start();
 	}
 
+	private void reportTransition(){
+		if(timeline != null){
+			timeline.record(StateTimeline.EVENT_MORPH_END, state.ordinal(), System.nanoTime());
+		}
+		ButtonMetrics metrics = this.metrics;
+		if(metrics == null || morphSourceState == null){
+			return;
+		}
+		long duration = AnimationUtils.currentAnimationTimeMillis() - morphStartTime;
+		metrics.recordTransition(duration);
+		metricsListener.onTransition(morphSourceState.name(), state.name(), duration, metrics);
+	}
+
 	private void setIcon(@DrawableRes int icon){
 		Drawable drawable = ViewUtils.drawable(icon, this);
 		if(drawable != null){
 			int padding = (getWidth() / 2) - (drawable.getIntrinsicWidth() / 2);
 			setCompoundDrawablesWithIntrinsicBounds(icon, 0, 0, 0);
 			setPadding(padding, 0, 0, 0);
+			shownIcon = icon;
+			shownIconWidth = getWidth();
 		}
 	}
 
 	protected void removeIcon(){
 		setCompoundDrawablesWithIntrinsicBounds(0, 0, 0, 0);
 		setPadding(0, 0, 0, 0);
+		shownIcon = 0;
+	}
+
+	/**
+	 * Shows the icon, or the text if there is no icon, touching the views only when they change.
+	 */
+	private void bindIconOrText(@DrawableRes int icon, String text){
+		if(icon != 0){
+			if(icon != shownIcon || getWidth() != shownIconWidth){
+				setIcon(icon);
+			}
+			bindText(null);
+		}
+		else {
+			if(shownIcon != 0){
+				removeIcon();
+			}
+			bindText(text);
+		}
+	}
+
+	private void bindText(String text){
+		if(!TextUtils.equals(getText(), text)){
+			setText(text);
+		}
 	}
 
 	/**
@@ -558,55 +1122,490 @@ public class CircularProgressButton extends AppCompatButton
 		setProgress(progress, true);
 	}*/
 	public void setProgress(int progress, boolean animate){
-		int fromProgress = this.progress;
-		this.progress = progress;
+		requestProgress(progress, animate);
+		scheduleTransition(animate);
+	}
+
+	/**
+	 * Shows {@code current} out of {@code total} on the progress ring, morphing to the progress state first
+	 * if needed. Meant for large byte counts: no state is ever read from the values, a full ring stays in
+	 * progress until {@link #showComplete()}.
+	 */
+	@SuppressWarnings("unused")
+	public void setProgress(long current, long total){
+		setProgressFraction(ProgressSweep.fraction(current, total));
+	}
+
+	/**
+	 * Shows the completed fraction, between 0 and 1, on the progress ring, morphing to the progress state
+	 * first if needed. Unlike {@link #setProgress(int, boolean)} no value stands for a state.
+	 */
+	public void setProgressFraction(float fraction){
+		requestFraction(fraction);
+		scheduleTransition(true);
+	}
+
+	@SuppressWarnings("unused")
+	public float getProgressFraction(){
+		return progressFraction;
+	}
+
+	@SuppressWarnings("unused")
+	public void showIdle(){
+		requestState(State.IDLE, IDLE_STATE_PROGRESS, true);
+		scheduleTransition(true);
+	}
+
+	@SuppressWarnings("unused")
+	public void showComplete(){
+		requestState(State.COMPLETE, maxProgress, true);
+		scheduleTransition(true);
+	}
+
+	@SuppressWarnings("unused")
+	public void showError(){
+		requestState(State.ERROR, ERROR_STATE_PROGRESS, true);
+		scheduleTransition(true);
+	}
+
+	/**
+	 * Shows the state right away, without morphing, for binding recycled views in lists. Progress keeps its
+	 * current fraction and mode, see {@link #bindState(State, float, boolean)}.
+	 */
+	@SuppressWarnings("unused")
+	public void bindState(State state){
+		bindState(state, progressFraction, indeterminateProgressMode);
+	}
+
+	/**
+	 * Shows the state right away, without morphing, for binding recycled views in lists. Whatever is left
+	 * from the previous binding is dropped: a running morph, requests not applied yet and the
+	 * {@link #setProgressAggregator(ProgressAggregator) progress aggregator}. The spinner only runs if the
+	 * new state needs it. Allocates nothing once the button has been laid out and has shown the state before.
+	 *
+	 * @param progressFraction          completed fraction between 0 and 1, used by {@link State#PROGRESS}
+	 * @param indeterminateProgressMode whether {@link State#PROGRESS} shows the spinner instead of the ring
+	 */
+	public void bindState(@NonNull State state, float progressFraction, boolean indeterminateProgressMode){
+		setProgressAggregator(null);
+		pendingProgress.clear();
+		removeCallbacks(applyTransitionRunnable);
+		transitionPosted = false;
+		morphingAnimation.cancel();
+		morphingInProgress = false;
+		configurationChanged = false;
+
+		this.state = state;
+		morphTargetState = state;
+		this.indeterminateProgressMode = indeterminateProgressMode;
+		this.progressFraction = Math.min(Math.max(progressFraction, 0f), 1f);
+		switch(state){
+			case PROGRESS:
+				progress = Math.min(Math.max((int) (this.progressFraction * maxProgress), 1), maxProgress - 1);
+				break;
+			case COMPLETE:
+				progress = maxProgress;
+				break;
+			case ERROR:
+				progress = ERROR_STATE_PROGRESS;
+				break;
+			default:
+				progress = IDLE_STATE_PROGRESS;
+				break;
+		}
+		stateManager.reset(state);
+
+		if(getWidth() == 0){
+			boundBeforeLayout = true;
+		}
+		else {
+			applyBoundState();
+		}
+	}
+
+	/**
+	 * Applies what the morph into {@link #state} would have ended with, without running it.
+	 */
+	private void applyBoundState(){
+		snapShape();
+		switch(state){
+			case PROGRESS:
+				bindIconOrText(0, progressText);
+				ensureProgressStateDrawables();
+				if(progressExtrapolator != null){
+					progressExtrapolator.reset(progressFraction, AnimationUtils.currentAnimationTimeMillis());
+				}
+				updateProgressSweep();
+				break;
+			case COMPLETE:
+				bindIconOrText(iconComplete, completeText);
+				break;
+			case ERROR:
+				bindIconOrText(iconError, errorText);
+				break;
+			case IDLE:
+				bindIconOrText(0, idleText);
+				break;
+		}
+		updateSpinnerRunning();
+		refreshDrawableState();
+		invalidate();
+	}
+
+	/**
+	 * Fits the shape of {@link #state} to the current size, keeping the colors on screen.
+	 */
+	private void resizeShape(){
+		if(state == State.PROGRESS){
+			morphingAnimation.resizeTo(getHeight(), paddingProgress, getHeight());
+		}
+		else {
+			morphingAnimation.resizeTo(getWidth(), 0, cornerRadius);
+		}
+	}
+
+	/**
+	 * Sets the background to the shape a morph into {@link #state} ends with, for the current size.
+	 */
+	private void snapShape(){
+		switch(state){
+			case PROGRESS:
+				morphingAnimation.snapTo(getHeight(), paddingProgress, colorProgress, colorIndicatorBackground,
+						getHeight());
+				break;
+			case COMPLETE:
+				morphingAnimation.snapTo(getWidth(), 0, completeColors.normal, completeColors.normal, cornerRadius);
+				break;
+			case ERROR:
+				morphingAnimation.snapTo(getWidth(), 0, errorColors.normal, errorColors.normal, cornerRadius);
+				break;
+			case IDLE:
+				morphingAnimation.snapTo(getWidth(), 0, idleColors.normal, idleColors.normal, cornerRadius);
+				break;
+		}
+	}
+
+	@SuppressWarnings("unused")
+	public int getMaxProgress(){
+		return maxProgress;
+	}
+
+	/**
+	 * Sets the scale of {@link #setProgress(int, boolean)}, also settable with {@code cpb_maxProgress}.
+	 * Progress values from the max up request the complete state. Defaults to 100.
+	 */
+	@SuppressWarnings("unused")
+	public void setMaxProgress(int maxProgress){
+		this.maxProgress = checkMaxProgress(maxProgress);
+		pendingProgress.setMaxProgress(maxProgress);
+	}
+
+	private static int checkMaxProgress(int maxProgress){
+		if(maxProgress < 2){
+			throw new IllegalArgumentException("maxProgress must be at least 2: " + maxProgress);
+		}
+		return maxProgress;
+	}
+
+	@SuppressWarnings("unused")
+	public int getSweepResolution(){
+		return sweepResolution;
+	}
+
+	/**
+	 * Number of steps per full circle the progress ring can show, also settable with
+	 * {@code cpb_sweepResolution}. Progress changes within one step neither recompute the arc nor redraw.
+	 * 0, the default, uses one step per pixel along the ring.
+	 */
+	@SuppressWarnings("unused")
+	public void setSweepResolution(int sweepResolution){
+		this.sweepResolution = sweepResolution;
+		if(progressDrawable != null){
+			progressDrawable.setSweepSteps(sweepResolution);
+			invalidateProgressRing();
+		}
+	}
+
+	private void scheduleTransition(boolean animate){
+		// morphs are planned on the next frame, so states passed through within one frame are never animated
+		if(!animate || !stateManager.hasRequestedTransitions()){
+			applyTransition();
+		}
+		else if(!transitionPosted){
+			transitionPosted = true;
+			ViewCompat.postOnAnimation(this, applyTransitionRunnable);
+		}
+	}
+
+	private void requestProgress(int progress, boolean animate){
+		if(progress > 0){
+			progressFraction = Math.min((float) progress / maxProgress, 1f);
+		}
+		requestState(Transition.targetOf(progress, maxProgress), progress, animate);
+	}
+
+	private void requestFraction(float fraction){
+		if(fraction < 0){
+			fraction = 0;
+		}
+		else if(fraction > 1){
+			fraction = 1;
+		}
+		progressFraction = fraction;
+		// the int view of the progress stays clear of the state sentinels
+		int progress = Math.min(Math.max((int) (fraction * maxProgress), 1), maxProgress - 1);
+		requestState(State.PROGRESS, progress, true);
+	}
 
+	/**
+	 * @param progress int view of the request, as returned by {@link #getProgress()}
+	 */
+	private void requestState(State target, int progress, boolean animate){
+		this.progress = progress;
 		configurationChanged = !animate;
+		if(timeline != null){
+			timeline.record(StateTimeline.EVENT_PROGRESS, progress, System.nanoTime());
+		}
+		stateManager.request(getTransitionSource(), target);
+	}
 
-		if(morphingInProgress || getWidth() == 0){
-			return;
+	/**
+	 * Applies the current progress again without animation, for instance after a layout change.
+	 */
+	private void reapplyState(){
+		requestState(Transition.targetOf(progress, maxProgress), progress, false);
+		applyTransition();
+	}
+
+	/**
+	 * @return state on screen, or the state a running morph is heading to and would be retargeted from
+	 */
+	private State getTransitionSource(){
+		return morphingInProgress ? morphTargetState : state;
+	}
+
+	private void checkEnabledState(){
+		if(isEnabled() != stateManager.isEnabled()){
+			setEnabled(isEnabled());
 		}
+	}
 
-		stateManager.saveProgress(this);
+	private final Runnable applyTransitionRunnable = new Runnable()
+	{
+		@Override
+		public void run(){
+			transitionPosted = false;
+			applyTransition();
+		}
+	};
 
-		if(this.progress == SUCCESS_STATE_PROGRESS || this.progress >= maxProgress){
-			if(state == State.PROGRESS){
-				morphProgressToComplete();
+	private void applyTransition(){
+		if(getWidth() == 0){
+			return;
+		}
+
+		Transition transition = stateManager.plan(getTransitionSource());
+		if(transition != Transition.NONE && transition != Transition.PROGRESS_UPDATE){
+			// a retarget keeps the source and start of the morph it replaces
+			if(!morphingInProgress){
+				morphSourceState = state;
+				morphStartTime = AnimationUtils.currentAnimationTimeMillis();
 			}
-			else if(state == State.IDLE){
-				morphIdleToComplete();
+			else if(timeline != null){
+				timeline.record(StateTimeline.EVENT_MORPH_END, morphTargetState.ordinal(), System.nanoTime());
 			}
-			else if(state == State.ERROR){
-				morphErrorToComplete();
+			if(timeline != null){
+				timeline.record(StateTimeline.EVENT_MORPH_START, transition.target.ordinal(), System.nanoTime());
 			}
+			morphTargetState = transition.target;
+			Tracer.beginSection(transition.traceSection);
+			startMorph(transition);
+			Tracer.endSection();
 		}
-		else if(this.progress == ERROR_STATE_PROGRESS){
-			if(state == State.PROGRESS){
-				morphProgressToError();
+		else if(transition == Transition.PROGRESS_UPDATE){
+			if(progressExtrapolator != null){
+				progressExtrapolator.addSample(progressFraction, AnimationUtils.currentAnimationTimeMillis());
 			}
-			else if(state == State.IDLE){
-				morphIdleToError();
+			// an extrapolating ring keeps redrawing itself from drawProgress() until it settles
+			if(updateProgressSweep() || progressExtrapolator != null){
+				invalidateProgressRing();
 			}
 		}
-		else if(this.progress == IDLE_STATE_PROGRESS){
-			if(state == State.COMPLETE){
+	}
+
+	private void startMorph(Transition transition){
+		switch(transition){
+			case PROGRESS_TO_COMPLETE:
+				morphProgressToComplete();
+				break;
+			case IDLE_TO_COMPLETE:
+				morphIdleToComplete();
+				break;
+			case ERROR_TO_COMPLETE:
+				morphErrorToComplete();
+				break;
+			case PROGRESS_TO_ERROR:
+				morphProgressToError();
+				break;
+			case IDLE_TO_ERROR:
+				morphIdleToError();
+				break;
+			case COMPLETE_TO_IDLE:
 				morphCompleteToIdle();
-			}
-			else if(state == State.PROGRESS){
+				break;
+			case PROGRESS_TO_IDLE:
 				morphProgressToIdle();
-			}
-			else if(state == State.ERROR){
+				break;
+			case ERROR_TO_IDLE:
 				morphErrorToIdle();
+				break;
+			case TO_PROGRESS:
+				morphToProgress();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Thread-safe, non-blocking variant of {@link #setProgress(int, boolean)} for high-frequency producers.
+	 * Only the latest value is kept and applied, animated, at most once per frame on the main thread.
+	 * Intermediate values may be dropped, but a pending {@link #ERROR_STATE_PROGRESS} or
+	 * {@link #SUCCESS_STATE_PROGRESS} is never replaced by a regular progress value.
+	 */
+	public void postProgress(int progress){
+		boolean coalesced = pendingProgress.offer(progress);
+
+		ButtonMetrics metrics = this.metrics;
+		if(metrics != null && coalesced){
+			metrics.recordCoalescedProgress();
+		}
+
+		if(pendingProgressPosted.compareAndSet(false, true)){
+			pendingProgressPost.post();
+		}
+	}
+
+	/**
+	 * Runs a task on the next animation frame, posted from any thread. Posts from other threads hop to the
+	 * main thread first: before the view is attached, {@code postOnAnimation()} on API < 24 queues into the
+	 * run queue of the calling thread, which never runs for a worker thread.
+	 */
+	private final class FramePost implements Runnable
+	{
+		private final Runnable task;
+
+		FramePost(Runnable task){
+			this.task = task;
+		}
+
+		void post(){
+			if(Looper.myLooper() == Looper.getMainLooper()){
+				run();
+			}
+			else {
+				MAIN_HANDLER.post(this);
 			}
 		}
-		else if(this.progress > IDLE_STATE_PROGRESS){
-			if(state == State.PROGRESS){
-				invalidate();
+
+		@Override
+		public void run(){
+			ViewCompat.postOnAnimation(CircularProgressButton.this, task);
+		}
+	}
+
+	private final Runnable applyPendingProgress = new Runnable()
+	{
+		@Override
+		public void run(){
+			pendingProgressPosted.set(false);
+			int progress = pendingProgress.take();
+			if(progress != CoalescedProgress.NONE){
+				// already on an animation frame, plan right away instead of waiting for the next one
+				requestProgress(progress, true);
+				applyTransition();
+			}
+		}
+	};
+
+	private final FramePost pendingProgressPost = new FramePost(applyPendingProgress);
+
+	/**
+	 * Drives the progress of this button from the subtasks of the aggregator: worker threads update their
+	 * {@link ProgressAggregator.Task}s and the button samples the combined progress at most once per frame.
+	 * A failing task shows the error state, the success state is shown once every task completed.
+	 * Pass null to stop following the aggregator, the button keeps its current progress.
+	 */
+	@SuppressWarnings("unused")
+	public void setProgressAggregator(ProgressAggregator aggregator){
+		if(progressAggregator != null){
+			progressAggregator.setListener(null);
+		}
+		progressAggregator = aggregator;
+		if(aggregator != null){
+			aggregator.setListener(aggregatedProgressListener);
+			aggregatedProgressListener.onTaskChanged();
+		}
+	}
+
+	@SuppressWarnings("unused")
+	public ProgressAggregator getProgressAggregator(){
+		return progressAggregator;
+	}
+
+	private final ProgressAggregator.Listener aggregatedProgressListener = new ProgressAggregator.Listener()
+	{
+		@Override
+		public void onTaskChanged(){
+			// read before the CAS so updates after the sample is posted don't fight over the cache line
+			if(!aggregatedProgressPosted.get() && aggregatedProgressPosted.compareAndSet(false, true)){
+				aggregatedProgressPost.post();
+			}
+		}
+	};
+
+	private final Runnable applyAggregatedProgress = new Runnable()
+	{
+		@Override
+		public void run(){
+			aggregatedProgressPosted.set(false);
+			ProgressAggregator aggregator = progressAggregator;
+			if(aggregator == null){
+				return;
+			}
+			if(aggregator.isFailed()){
+				requestState(State.ERROR, ERROR_STATE_PROGRESS, true);
+			}
+			else if(aggregator.isComplete()){
+				requestState(State.COMPLETE, maxProgress, true);
+			}
+			else if(aggregator.getTaskCount() == 0){
+				requestState(State.IDLE, IDLE_STATE_PROGRESS, true);
 			}
 			else {
-				morphToProgress(fromProgress);
+				requestFraction(aggregator.getFraction());
 			}
+			applyTransition();
 		}
+	};
+
+	private final FramePost aggregatedProgressPost = new FramePost(applyAggregatedProgress);
+
+
+	StateManager getStateManager(){
+		return stateManager;
+	}
+
+	CircularProgressDrawable getProgressDrawable(){
+		return progressDrawable;
+	}
+
+	AnimatedVectorDrawable getRenderThreadSpinner(){
+		return renderThreadSpinner;
+	}
+
+	CircularAnimatedDrawable getAnimatedDrawable(){
+		return animatedDrawable;
 	}
 
 	public int getProgress(){
@@ -655,8 +1654,27 @@ public class CircularProgressButton extends AppCompatButton
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom){
 		super.onLayout(changed, left, top, right, bottom);
-		if(changed){
-			setProgress(progress, false);
+		boolean resized = sizeChanged;
+		sizeChanged = false;
+		Drawable stateBackground = getBackground();
+		if(resized && stateBackground != null){
+			// the next draw would size the background to the view and stretch the shape inside with it,
+			// sized here that draw leaves the shape snapped below alone
+			stateBackground.setBounds(0, 0, right - left, bottom - top);
+		}
+		if(boundBeforeLayout){
+			boundBeforeLayout = false;
+			applyBoundState();
+		}
+		else if(changed){
+			// a settled shape does not follow the new size by itself
+			if(resized && !morphingInProgress){
+				resizeShape();
+			}
+			if(state == State.PROGRESS){
+				ensureProgressStateDrawables();
+			}
+			reapplyState();
 		}
 	}
 
@@ -665,6 +1683,7 @@ public class CircularProgressButton extends AppCompatButton
 		Parcelable superState = super.onSaveInstanceState();
 		SavedState savedState = new SavedState(superState);
 		savedState.mProgress = progress;
+		savedState.mProgressFraction = progressFraction;
 		savedState.mIndeterminateProgressMode = indeterminateProgressMode;
 		savedState.mConfigurationChanged = true;
 
@@ -676,10 +1695,11 @@ public class CircularProgressButton extends AppCompatButton
 		if(state instanceof SavedState){
 			SavedState savedState = (SavedState) state;
 			progress = savedState.mProgress;
+			progressFraction = savedState.mProgressFraction;
 			indeterminateProgressMode = savedState.mIndeterminateProgressMode;
 			configurationChanged = savedState.mConfigurationChanged;
 			super.onRestoreInstanceState(savedState.getSuperState());
-			setProgress(progress, false);
+			reapplyState();
 		}
 		else {
 			super.onRestoreInstanceState(state);
@@ -693,6 +1713,7 @@ public class CircularProgressButton extends AppCompatButton
 		private boolean mIndeterminateProgressMode;
 		private boolean mConfigurationChanged;
 		private int mProgress;
+		private float mProgressFraction;
 
 		SavedState(Parcelable parcel){
 			super(parcel);
@@ -703,6 +1724,7 @@ public class CircularProgressButton extends AppCompatButton
 			mProgress = in.readInt();
 			mIndeterminateProgressMode = in.readInt() == 1;
 			mConfigurationChanged = in.readInt() == 1;
+			mProgressFraction = in.readFloat();
 		}
 
 		@Override
@@ -711,6 +1733,7 @@ public class CircularProgressButton extends AppCompatButton
 			out.writeInt(mProgress);
 			out.writeInt(mIndeterminateProgressMode ? 1 : 0);
 			out.writeInt(mConfigurationChanged ? 1 : 0);
+			out.writeFloat(mProgressFraction);
 		}
 
 		public static final Creator<SavedState> CREATOR = new Creator<SavedState>()
@@ -3,29 +3,71 @@ package com.dd;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 
 class CircularProgressDrawable extends Drawable {
 
+    /**
+     * Sweep resolution that quantizes to one step per pixel along the ring, see {@link #setSweepSteps(int)}.
+     */
+    public static final int SWEEP_STEPS_AUTO = 0;
+
     private float mSweepAngle;
+    private float mRequestedSweepAngle;
+    private int mSweepSteps;
     private float mStartAngle;
+    private int mSweepStep;
+    private int mSweepStepsSetting;
     private int mSize;
     private int mStrokeWidth;
     private int mStrokeColor;
 
-    public CircularProgressDrawable(int size, int strokeWidth, int strokeColor) {
-        mSize = size;
+    private final RectF mRectF = new RectF();
+    private final Paint mPaint;
+
+    public CircularProgressDrawable(int strokeWidth, int strokeColor) {
         mStrokeWidth = strokeWidth;
         mStrokeColor = strokeColor;
         mStartAngle = -90;
         mSweepAngle = 0;
+
+        mPaint = new Paint();
+        mPaint.setAntiAlias(true);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeWidth(mStrokeWidth);
+        mPaint.setColor(mStrokeColor);
+
+        setSweepSteps(SWEEP_STEPS_AUTO);
     }
 
-    public void setSweepAngle(float sweepAngle) {
-        mSweepAngle = sweepAngle;
+    /**
+     * Sweep angles are quantized to this many steps per full circle, changes below one step are not drawn.
+     * {@link #SWEEP_STEPS_AUTO} uses the length of the ring in pixels, so only visible changes redraw.
+     */
+    public void setSweepSteps(int sweepSteps) {
+        mSweepStepsSetting = sweepSteps;
+        if (sweepSteps <= 0) {
+            sweepSteps = ProgressSweep.autoSteps(mSize, mStrokeWidth);
+        }
+        mSweepSteps = sweepSteps;
+        mSweepStep = -1;
+        setSweepAngle(mRequestedSweepAngle);
+    }
+
+    /**
+     * @return true if the quantized sweep angle changed and the drawable needs to be redrawn
+     */
+    public boolean setSweepAngle(float sweepAngle) {
+        mRequestedSweepAngle = sweepAngle;
+        int sweepStep = ProgressSweep.step(sweepAngle, mSweepSteps);
+        if (sweepStep == mSweepStep) {
+            return false;
+        }
+        mSweepStep = sweepStep;
+        mSweepAngle = sweepStep * 360f / mSweepSteps;
+        return true;
     }
 
     public int getSize() {
@@ -34,15 +76,20 @@ class CircularProgressDrawable extends Drawable {
 
     @Override
     public void draw(Canvas canvas) {
-        final Rect bounds = getBounds();
+        canvas.drawArc(mRectF, mStartAngle, mSweepAngle, false, mPaint);
+    }
 
-        if (mPath == null) {
-            mPath = new Path();
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        // the ring is re-bound when the button is resized, the size follows the bounds
+        mSize = Math.min(bounds.width(), bounds.height());
+        if (mSweepStepsSetting <= 0) {
+            setSweepSteps(mSweepStepsSetting);
         }
-        mPath.reset();
-        mPath.addArc(getRect(), mStartAngle, mSweepAngle);
-        mPath.offset(bounds.left, bounds.top);
-        canvas.drawPath(mPath, createPaint());
+        int index = mStrokeWidth / 2;
+        mRectF.set(bounds.left + index, bounds.top + index,
+                bounds.left + getSize() - index, bounds.top + getSize() - index);
     }
 
     @Override
@@ -58,28 +105,4 @@ class CircularProgressDrawable extends Drawable {
     public int getOpacity() {
         return 1;
     }
-
-    private RectF mRectF;
-    private Paint mPaint;
-    private Path mPath;
-
-    private RectF getRect() {
-        if (mRectF == null) {
-            int index = mStrokeWidth / 2;
-            mRectF = new RectF(index, index, getSize() - index, getSize() - index);
-        }
-        return mRectF;
-    }
-
-    private Paint createPaint() {
-        if (mPaint == null) {
-            mPaint = new Paint();
-            mPaint.setAntiAlias(true);
-            mPaint.setStyle(Paint.Style.STROKE);
-            mPaint.setStrokeWidth(mStrokeWidth);
-            mPaint.setColor(mStrokeColor);
-        }
-
-        return mPaint;
-    }
 }
@@ -0,0 +1,58 @@
+package com.dd;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latest-value slot behind {@link CircularProgressButton#postProgress(int)}. Any thread offers progress
+ * values without locking, the main thread takes the latest one once per frame. A pending terminal value,
+ * {@link Transition#ERROR_PROGRESS} or anything from the max progress up, is never replaced by a regular one.
+ */
+final class CoalescedProgress
+{
+	static final int NONE = Integer.MIN_VALUE;
+
+	private final AtomicInteger pending = new AtomicInteger(NONE);
+	// read by offering threads, written on the main thread
+	private volatile int maxProgress;
+
+	CoalescedProgress(int maxProgress){
+		this.maxProgress = maxProgress;
+	}
+
+	void setMaxProgress(int maxProgress){
+		this.maxProgress = maxProgress;
+	}
+
+	/**
+	 * @return true if the value was dropped in favour of a pending terminal value or replaced a value that
+	 * was never taken, false if it filled the empty slot
+	 */
+	boolean offer(int progress){
+		int maxProgress = this.maxProgress;
+		boolean terminal = isTerminal(progress, maxProgress);
+		int current;
+		do {
+			current = pending.get();
+			if(!terminal && isTerminal(current, maxProgress)){
+				return true;
+			}
+		}
+		while(!pending.compareAndSet(current, progress));
+		return current != NONE;
+	}
+
+	/**
+	 * @return the latest value offered since the last take, or {@link #NONE}
+	 */
+	int take(){
+		return pending.getAndSet(NONE);
+	}
+
+	void clear(){
+		pending.set(NONE);
+	}
+
+	static boolean isTerminal(int progress, int maxProgress){
+		return progress == Transition.ERROR_PROGRESS || progress >= maxProgress;
+	}
+}
@@ -0,0 +1,74 @@
+package com.dd;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pre-baked ARGB ramp between two colors. Sampling a ramp is a single array lookup, so morph frames
+ * do no per-channel math. Ramps are immutable and cached process-wide per (fromColor, toColor) pair.
+ */
+final class ColorRamp
+{
+	static final int SIZE = 256;
+	private static final int MAX_CACHED_RAMPS = 64;
+
+	private static final Map<Long, ColorRamp> CACHE = new LinkedHashMap<Long, ColorRamp>(16, .75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, ColorRamp> eldest){
+			return size() > MAX_CACHED_RAMPS;
+		}
+	};
+
+	private final int[] colors;
+
+	private ColorRamp(int fromColor, int toColor){
+		colors = new int[SIZE];
+		for(int i = 0; i < SIZE; i++){
+			colors[i] = evaluate((float) i / (SIZE - 1), fromColor, toColor);
+		}
+	}
+
+	static ColorRamp obtain(int fromColor, int toColor){
+		Long key = ((long) fromColor << 32) | (toColor & 0xffffffffL);
+		synchronized(CACHE){
+			ColorRamp ramp = CACHE.get(key);
+			if(ramp == null){
+				ramp = new ColorRamp(fromColor, toColor);
+				CACHE.put(key, ramp);
+			}
+			return ramp;
+		}
+	}
+
+	int colorAt(float fraction){
+		int index = (int) (fraction * (SIZE - 1) + .5f);
+		if(index < 0){
+			index = 0;
+		}
+		else if(index >= SIZE){
+			index = SIZE - 1;
+		}
+		return colors[index];
+	}
+
+	/**
+	 * Same per-channel interpolation as {@link android.animation.ArgbEvaluator}, on primitives.
+	 */
+	static int evaluate(float fraction, int startValue, int endValue){
+		int startA = (startValue >> 24) & 0xff;
+		int startR = (startValue >> 16) & 0xff;
+		int startG = (startValue >> 8) & 0xff;
+		int startB = startValue & 0xff;
+
+		int endA = (endValue >> 24) & 0xff;
+		int endR = (endValue >> 16) & 0xff;
+		int endG = (endValue >> 8) & 0xff;
+		int endB = endValue & 0xff;
+
+		return (startA + (int) (fraction * (endA - startA))) << 24
+				| (startR + (int) (fraction * (endR - startR))) << 16
+				| (startG + (int) (fraction * (endG - startG))) << 8
+				| (startB + (int) (fraction * (endB - startB)));
+	}
+}
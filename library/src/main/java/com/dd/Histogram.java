@@ -0,0 +1,96 @@
+package com.dd;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds with power-of-two microsecond buckets: bucket 0 holds
+ * values below 1 us, bucket {@code i} values below 2<sup>i</sup> us and the last bucket everything above.
+ * All storage is allocated up front, {@link #record(long)} never allocates.
+ * <p>
+ * Not thread-safe, a histogram is written and read on the main thread.
+ */
+public final class Histogram
+{
+	public static final int BUCKET_COUNT = 24;
+
+	private final long[] counts = new long[BUCKET_COUNT];
+	private long count;
+	private long sum;
+	private long max;
+
+	Histogram(){
+	}
+
+	void record(long nanos){
+		if(nanos < 0){
+			nanos = 0;
+		}
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		if(bucket >= BUCKET_COUNT){
+			bucket = BUCKET_COUNT - 1;
+		}
+		counts[bucket]++;
+		count++;
+		sum += nanos;
+		if(nanos > max){
+			max = nanos;
+		}
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	public long getSum(){
+		return sum;
+	}
+
+	public long getMax(){
+		return max;
+	}
+
+	public long getMean(){
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * @return number of values recorded in the given bucket
+	 */
+	public long getBucket(int bucket){
+		return counts[bucket];
+	}
+
+	/**
+	 * @return exclusive upper bound of the given bucket in nanoseconds, {@link Long#MAX_VALUE} for the last one
+	 */
+	public static long getBucketUpperBound(int bucket){
+		return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return upper bound of the bucket holding the given percentile, capped at the largest recorded value
+	 */
+	public long getPercentile(float percentile){
+		if(count == 0){
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100f);
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			seen += counts[i];
+			if(seen >= rank && seen > 0){
+				return Math.min(getBucketUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	public void reset(){
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			counts[i] = 0;
+		}
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+}
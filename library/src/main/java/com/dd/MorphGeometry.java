@@ -0,0 +1,69 @@
+package com.dd;
+
+/**
+ * Per-frame bounds of the background while it morphs between the button width and the progress circle.
+ */
+final class MorphGeometry
+{
+	private int fromWidth;
+	private int toWidth;
+	private float fromPadding;
+	private float toPadding;
+	private int containerWidth;
+
+	private int width;
+	private float padding;
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
+
+	/**
+	 * @param containerWidth width the morphing shape is centered in, the width of the view
+	 */
+	void set(int fromWidth, int toWidth, float fromPadding, float toPadding, int containerWidth){
+		this.fromWidth = fromWidth;
+		this.toWidth = toWidth;
+		this.fromPadding = fromPadding;
+		this.toPadding = toPadding;
+		this.containerWidth = containerWidth;
+	}
+
+	void compute(float fraction, int height){
+		width = (int) (fromWidth + fraction * (toWidth - fromWidth));
+		padding = fromPadding + fraction * (toPadding - fromPadding);
+
+		int leftOffset = (containerWidth - width) / 2;
+		int rightOffset = containerWidth - leftOffset;
+		int padding = (int) this.padding;
+
+		left = leftOffset + padding;
+		top = padding;
+		right = rightOffset - padding;
+		bottom = height - padding;
+	}
+
+	int getWidth(){
+		return width;
+	}
+
+	float getPadding(){
+		return padding;
+	}
+
+	int getLeft(){
+		return left;
+	}
+
+	int getTop(){
+		return top;
+	}
+
+	int getRight(){
+		return right;
+	}
+
+	int getBottom(){
+		return bottom;
+	}
+}
@@ -1,20 +1,42 @@
 package com.dd;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ArgbEvaluator;
-import android.animation.ObjectAnimator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.graphics.drawable.GradientDrawable;
+import android.support.v4.view.ViewCompat;
+import android.util.DisplayMetrics;
 import android.widget.TextView;
 
-import timber.log.Timber;
-
+/**
+ * Morph engine owned by a single {@link CircularProgressButton} and reused for every transition.
+ * A single {@link ValueAnimator} drives the fraction, width, padding, colors and corner radius are
+ * interpolated from it in one update callback without reflection or boxing. Colors are sampled from
+ * shared {@link ColorRamp}s.
+ * <p>
+ * Calling {@link #start()} while a morph is running retargets it: the new morph starts from the values
+ * currently on screen instead of the configured from values. A retarget back to where the running morph
+ * started plays as a reverse of the part already shown instead of a full-length morph.
+ * <p>
+ * Depending on the layer policy the view is moved to a hardware layer while a morph runs and put back on
+ * its previous layer type when the morph ends or is cancelled. A retarget keeps the layer. The layer is
+ * re-rendered on every frame of a morph, so promotion is opt-in.
+ */
 class MorphingAnimation {
 
     public static final int DURATION_NORMAL = 400;
     public static final int DURATION_INSTANT = 1;
 
+    public static final int LAYER_AUTO = 0;
+    public static final int LAYER_ALWAYS = 1;
+    public static final int LAYER_NEVER = 2;
+
+    /**
+     * In {@link #LAYER_AUTO} views covering more than this share of the display are not promoted, their
+     * layer texture would cost more memory and upload time than the raster work it saves.
+     */
+    private static final float AUTO_LAYER_MAX_DISPLAY_SHARE = 0.25f;
+
     private OnAnimationEndListener mListener;
 
     private int mDuration;
@@ -36,9 +58,60 @@ class MorphingAnimation {
     private TextView mView;
     private StrokeGradientDrawable mDrawable;
 
+    private float mFromPadding;
+    private float mToPadding;
+
+    private int mCurrentWidth;
+    private float mCurrentPadding;
+    private int mCurrentColor;
+    private int mCurrentStrokeColor;
+    private float mCurrentCornerRadius;
+
+    private int mRunFromWidth;
+    private float mRunFromPadding;
+    private int mRunFromColor;
+    private int mRunFromStrokeColor;
+    private float mRunFromCornerRadius;
+
+    private final MorphGeometry mGeometry = new MorphGeometry();
+    private ColorRamp mColorRamp;
+    private ColorRamp mStrokeColorRamp;
+
+    private final ValueAnimator mAnimator;
+    private boolean mCanceled;
+
+    private int mLayerPolicy = LAYER_NEVER;
+    private boolean mLayerPromoted;
+    private int mPreviousLayerType;
+
     public MorphingAnimation(TextView viewGroup, StrokeGradientDrawable drawable) {
         mView = viewGroup;
         mDrawable = drawable;
+
+        mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                update(animation.getAnimatedFraction());
+            }
+        });
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (mCanceled) {
+                    return;
+                }
+                restoreLayer();
+                if (mListener != null) {
+                    mListener.onAnimationEnd();
+                }
+            }
+        });
     }
 
     public void setDuration(int duration) {
@@ -85,85 +158,194 @@ class MorphingAnimation {
         mPadding = padding;
     }
 
+    /**
+     * @param layerPolicy one of {@link #LAYER_AUTO}, {@link #LAYER_ALWAYS} or {@link #LAYER_NEVER}
+     */
+    public void setLayerPolicy(int layerPolicy) {
+        mLayerPolicy = layerPolicy;
+        if (layerPolicy == LAYER_NEVER) {
+            restoreLayer();
+        }
+    }
+
+    public int getLayerPolicy() {
+        return mLayerPolicy;
+    }
+
+    public boolean isRunning() {
+        return mAnimator.isRunning();
+    }
+
+    public void cancel() {
+        mAnimator.cancel();
+        restoreLayer();
+    }
+
     public void start() {
-		if(mDuration == DURATION_INSTANT){
+        Tracer.beginSection(Tracer.MORPH_START);
+        // padding grows while shrinking to the progress circle and shrinks back while growing
+        if (mFromWidth > mToWidth) {
+            mFromPadding = 0;
+            mToPadding = mPadding;
+        } else {
+            mFromPadding = mPadding;
+            mToPadding = 0;
+        }
+
+        int duration = mDuration;
+        if (isRunning()) {
+            boolean reverse = mToWidth == mRunFromWidth
+                    && mToPadding == mRunFromPadding
+                    && mToColor == mRunFromColor
+                    && mToStrokeColor == mRunFromStrokeColor
+                    && mToCornerRadius == mRunFromCornerRadius;
+            if (reverse && duration != DURATION_INSTANT) {
+                duration = (int) Math.max(Math.min(mAnimator.getCurrentPlayTime(), mDuration), DURATION_INSTANT + 1);
+            }
+
+            mFromWidth = mCurrentWidth;
+            mFromPadding = mCurrentPadding;
+            mFromColor = mCurrentColor;
+            mFromStrokeColor = mCurrentStrokeColor;
+            mFromCornerRadius = mCurrentCornerRadius;
+        }
+        // a retarget keeps the hardware layer of the running morph
+        mAnimator.cancel();
+
+        mRunFromWidth = mFromWidth;
+        mRunFromPadding = mFromPadding;
+        mRunFromColor = mFromColor;
+        mRunFromStrokeColor = mFromStrokeColor;
+        mRunFromCornerRadius = mFromCornerRadius;
+
+        mCurrentWidth = mFromWidth;
+        mCurrentPadding = mFromPadding;
+        mCurrentColor = mFromColor;
+        mCurrentStrokeColor = mFromStrokeColor;
+        mCurrentCornerRadius = mFromCornerRadius;
+
+		if(duration == DURATION_INSTANT){
 			//do it instantly!
 			GradientDrawable gradientDrawable = mDrawable.getGradientDrawable();
-			//probably not needed: gradientDrawable.setBounds();
+			// needed once a retarget can land here with the shape half way through a morph
+			mGeometry.set(mFromWidth, mToWidth, mFromPadding, mToPadding, mView.getWidth());
+			mGeometry.compute(1f, mView.getHeight());
+			gradientDrawable.setBounds(mGeometry.getLeft(), mGeometry.getTop(), mGeometry.getRight(), mGeometry.getBottom());
 			gradientDrawable.setColor(mToColor);
 			mDrawable.setStrokeColor(mToStrokeColor);
 			gradientDrawable.setCornerRadius(mToCornerRadius);
 
+			mCurrentWidth = mToWidth;
+			mCurrentPadding = mToPadding;
+			mCurrentColor = mToColor;
+			mCurrentStrokeColor = mToStrokeColor;
+			mCurrentCornerRadius = mToCornerRadius;
+
+			restoreLayer();
 			if(mListener != null){
 				mListener.onAnimationEnd();
 			}
 		}
 		else {
-			ValueAnimator widthAnimation = ValueAnimator.ofInt(mFromWidth, mToWidth);
-			final GradientDrawable gradientDrawable = mDrawable.getGradientDrawable();
-			widthAnimation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener()
-			{
-				@Override
-				public void onAnimationUpdate(ValueAnimator animation){
-					Integer value = (Integer) animation.getAnimatedValue();
-					int leftOffset;
-					int rightOffset;
-					int padding;
-
-					if(mFromWidth > mToWidth){
-						leftOffset = (mFromWidth - value) / 2;
-						rightOffset = mFromWidth - leftOffset;
-						padding = (int) (mPadding * animation.getAnimatedFraction());
-					}
-					else {
-						leftOffset = (mToWidth - value) / 2;
-						rightOffset = mToWidth - leftOffset;
-						padding = (int) (mPadding - mPadding * animation.getAnimatedFraction());
-					}
-
-					gradientDrawable
-							.setBounds(leftOffset + padding, padding, rightOffset - padding, mView.getHeight() - padding);
-				}
-			});
-
-			ObjectAnimator bgColorAnimation = ObjectAnimator.ofInt(gradientDrawable, "color", mFromColor, mToColor);
-			bgColorAnimation.setEvaluator(new ArgbEvaluator());
-
-			ObjectAnimator strokeColorAnimation =
-					ObjectAnimator.ofInt(mDrawable, "strokeColor", mFromStrokeColor, mToStrokeColor);
-			strokeColorAnimation.setEvaluator(new ArgbEvaluator());
-
-			ObjectAnimator cornerAnimation =
-					ObjectAnimator.ofFloat(gradientDrawable, "cornerRadius", mFromCornerRadius, mToCornerRadius);
-
-			AnimatorSet animatorSet = new AnimatorSet();
-			animatorSet.setDuration(mDuration);
-			animatorSet.playTogether(widthAnimation, bgColorAnimation, strokeColorAnimation, cornerAnimation);
-			animatorSet.addListener(new Animator.AnimatorListener()
-			{
-				@Override
-				public void onAnimationStart(Animator animation){
-
-				}
-
-				@Override
-				public void onAnimationEnd(Animator animation){
-					if(mListener != null){
-						mListener.onAnimationEnd();
-					}
-				}
-
-				@Override
-				public void onAnimationCancel(Animator animation){
-
-				}
-
-				@Override
-				public void onAnimationRepeat(Animator animation){
-
-				}
-			});
-			animatorSet.start();
+			mGeometry.set(mFromWidth, mToWidth, mFromPadding, mToPadding, mView.getWidth());
+			mColorRamp = ColorRamp.obtain(mFromColor, mToColor);
+			mStrokeColorRamp = ColorRamp.obtain(mFromStrokeColor, mToStrokeColor);
+
+			promoteLayer();
+
+			mCanceled = false;
+			mAnimator.setDuration(duration);
+			mAnimator.start();
 		}
+        Tracer.endSection();
+    }
+
+    /**
+     * Cancels any running morph and applies the given shape right away, without calling the listener.
+     * Allocates nothing.
+     */
+    public void snapTo(int width, float padding, int color, int strokeColor, float cornerRadius) {
+        mAnimator.cancel();
+        restoreLayer();
+
+        mFromWidth = mToWidth = mCurrentWidth = width;
+        mFromPadding = mToPadding = mCurrentPadding = padding;
+        mFromColor = mToColor = mCurrentColor = color;
+        mFromStrokeColor = mToStrokeColor = mCurrentStrokeColor = strokeColor;
+        mDrawable.getGradientDrawable().setColor(color);
+        mDrawable.setStrokeColor(strokeColor);
+        resizeTo(width, padding, cornerRadius);
+    }
+
+    /**
+     * Fits the settled shape to the current size of the view. Colors are left alone, the app may have
+     * changed them since the last morph.
+     */
+    public void resizeTo(int width, float padding, float cornerRadius) {
+        mFromWidth = mToWidth = mCurrentWidth = width;
+        mFromPadding = mToPadding = mCurrentPadding = padding;
+        mFromCornerRadius = mToCornerRadius = mCurrentCornerRadius = cornerRadius;
+
+        mGeometry.set(width, width, padding, padding, mView.getWidth());
+        mGeometry.compute(1f, mView.getHeight());
+        GradientDrawable gradientDrawable = mDrawable.getGradientDrawable();
+        gradientDrawable.setBounds(mGeometry.getLeft(), mGeometry.getTop(), mGeometry.getRight(), mGeometry.getBottom());
+        gradientDrawable.setCornerRadius(cornerRadius);
+    }
+
+    private void promoteLayer() {
+        if (mLayerPromoted || !shouldPromoteLayer()) {
+            return;
+        }
+        mPreviousLayerType = ViewCompat.getLayerType(mView);
+        mLayerPromoted = true;
+        if (mPreviousLayerType != ViewCompat.LAYER_TYPE_HARDWARE) {
+            ViewCompat.setLayerType(mView, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    private boolean shouldPromoteLayer() {
+        switch (mLayerPolicy) {
+            case LAYER_ALWAYS:
+                return true;
+            case LAYER_NEVER:
+                return false;
+            default:
+                // leave layer types chosen by the app alone
+                if (!mView.isHardwareAccelerated()
+                        || ViewCompat.getLayerType(mView) != ViewCompat.LAYER_TYPE_NONE) {
+                    return false;
+                }
+                DisplayMetrics metrics = mView.getResources().getDisplayMetrics();
+                float displayArea = (float) metrics.widthPixels * metrics.heightPixels;
+                float viewArea = (float) mView.getWidth() * mView.getHeight();
+                return viewArea <= displayArea * AUTO_LAYER_MAX_DISPLAY_SHARE;
+        }
+    }
+
+    private void restoreLayer() {
+        if (!mLayerPromoted) {
+            return;
+        }
+        mLayerPromoted = false;
+        if (mPreviousLayerType != ViewCompat.LAYER_TYPE_HARDWARE) {
+            ViewCompat.setLayerType(mView, mPreviousLayerType, null);
+        }
+    }
+
+    private void update(float fraction) {
+        mGeometry.compute(fraction, mView.getHeight());
+
+        mCurrentWidth = mGeometry.getWidth();
+        mCurrentPadding = mGeometry.getPadding();
+        mCurrentColor = mColorRamp.colorAt(fraction);
+        mCurrentStrokeColor = mStrokeColorRamp.colorAt(fraction);
+        mCurrentCornerRadius = mFromCornerRadius + fraction * (mToCornerRadius - mFromCornerRadius);
+
+        GradientDrawable gradientDrawable = mDrawable.getGradientDrawable();
+        gradientDrawable.setBounds(mGeometry.getLeft(), mGeometry.getTop(), mGeometry.getRight(), mGeometry.getBottom());
+        gradientDrawable.setColor(mCurrentColor);
+        mDrawable.setStrokeColor(mCurrentStrokeColor);
+        gradientDrawable.setCornerRadius(mCurrentCornerRadius);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.dd;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Combines the progress of several weighted subtasks into the progress of one
+ * {@link CircularProgressButton}, see {@link CircularProgressButton#setProgressAggregator(ProgressAggregator)}.
+ * <p>
+ * Every {@link Task} keeps its own counter, so worker threads updating different tasks don't write the same
+ * counter and no update takes a lock. Threads updating the same task share its counter. Every update also
+ * reads one flag shared by all tasks, which is written only when the first change after a frame schedules
+ * the next sample. The button samples the combined progress at most once per frame on the main thread: a
+ * failed task drives it to {@link CircularProgressButton#ERROR_STATE_PROGRESS}, all tasks completed to the
+ * complete state, anything in between shows the weighted fraction of the work done.
+ */
+public final class ProgressAggregator
+{
+	interface Listener
+	{
+		/**
+		 * Called on the updating thread after any task changed. Called for every update, so implementations
+		 * should only write shared state when they have to.
+		 */
+		void onTaskChanged();
+	}
+
+	private static final Task[] NO_TASKS = new Task[0];
+
+	private final AtomicReference<Task[]> tasks = new AtomicReference<Task[]>(NO_TASKS);
+	private volatile Listener listener;
+
+	/**
+	 * Registers a subtask. Safe to call from any thread, also while other tasks are being updated.
+	 *
+	 * @param total  amount of work of the task, in any unit, for instance bytes to upload
+	 * @param weight share of the task in the combined progress relative to the other tasks
+	 */
+	public Task addTask(long total, float weight){
+		if(total <= 0 || weight <= 0){
+			throw new IllegalArgumentException("total and weight must be positive: " + total + ", " + weight);
+		}
+		Task task = new Task(this, total, weight);
+		Task[] current;
+		Task[] updated;
+		do {
+			current = tasks.get();
+			updated = new Task[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = task;
+		}
+		while(!tasks.compareAndSet(current, updated));
+		notifyChanged();
+		return task;
+	}
+
+	public int getTaskCount(){
+		return tasks.get().length;
+	}
+
+	/**
+	 * @return weighted completed fraction of all tasks, between 0 and 1
+	 */
+	public float getFraction(){
+		Task[] tasks = this.tasks.get();
+		float weights = 0;
+		float done = 0;
+		for(Task task : tasks){
+			weights += task.weight;
+			done += task.weight * task.getFraction();
+		}
+		return weights > 0 ? done / weights : 0;
+	}
+
+	public boolean isFailed(){
+		for(Task task : tasks.get()){
+			if(task.status.get() == Task.FAILED){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if there is at least one task and all tasks completed
+	 */
+	public boolean isComplete(){
+		Task[] tasks = this.tasks.get();
+		for(Task task : tasks){
+			if(task.status.get() != Task.COMPLETE){
+				return false;
+			}
+		}
+		return tasks.length > 0;
+	}
+
+	void setListener(Listener listener){
+		this.listener = listener;
+	}
+
+	private void notifyChanged(){
+		Listener listener = this.listener;
+		if(listener != null){
+			listener.onTaskChanged();
+		}
+	}
+
+	/**
+	 * One subtask of a {@link ProgressAggregator}. All methods are thread-safe and lock-free.
+	 */
+	public static final class Task
+	{
+		private static final int RUNNING = 0;
+		private static final int COMPLETE = 1;
+		private static final int FAILED = 2;
+
+		private final ProgressAggregator aggregator;
+		private final long total;
+		private final float weight;
+		private final AtomicLong done = new AtomicLong();
+		private final AtomicInteger status = new AtomicInteger(RUNNING);
+
+		private Task(ProgressAggregator aggregator, long total, float weight){
+			this.aggregator = aggregator;
+			this.total = total;
+			this.weight = weight;
+		}
+
+		/**
+		 * Adds to the amount of work done, several threads may work on the same task.
+		 */
+		public void add(long amount){
+			done.addAndGet(amount);
+			aggregator.notifyChanged();
+		}
+
+		public void set(long amount){
+			done.set(amount);
+			aggregator.notifyChanged();
+		}
+
+		/**
+		 * Marks the task done. Has no effect on a task that already failed.
+		 */
+		public void complete(){
+			if(status.compareAndSet(RUNNING, COMPLETE)){
+				aggregator.notifyChanged();
+			}
+		}
+
+		/**
+		 * Marks the task failed, which is final: a later {@link #complete()} from another code path does not
+		 * turn the failure into a success.
+		 */
+		public void fail(){
+			if(status.getAndSet(FAILED) != FAILED){
+				aggregator.notifyChanged();
+			}
+		}
+
+		float getFraction(){
+			if(status.get() == COMPLETE){
+				return 1;
+			}
+			long done = this.done.get();
+			if(done <= 0){
+				return 0;
+			}
+			return done >= total ? 1 : (float) done / total;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.dd;
+
+/**
+ * Smooths sparse progress updates. The displayed value trails the reported progress by about one update
+ * interval: when a sample arrives the display glides from where it is to that sample over the interval
+ * measured since the previous one, so it moves at the estimated rate of the producer but never runs ahead
+ * of a reported value. A producer slowing down makes the display wait at the latest sample instead of
+ * overshooting it. The displayed value never moves backwards unless the real progress does.
+ */
+final class ProgressExtrapolator
+{
+	private long sampleTime;
+	private float from;
+	private float target;
+	private long duration;
+	private float value;
+
+	void reset(float progress, long time){
+		sampleTime = time;
+		from = progress;
+		target = progress;
+		duration = 0;
+		value = progress;
+	}
+
+	void addSample(float progress, long time){
+		long interval = time - sampleTime;
+		float shown = valueAt(time);
+		if(progress > shown && interval > 0){
+			from = shown;
+			duration = interval;
+		}
+		else {
+			// the real progress went back, or there is no interval to glide over
+			from = progress;
+			duration = 0;
+			value = progress;
+		}
+		target = progress;
+		sampleTime = time;
+	}
+
+	float valueAt(long time){
+		long elapsed = time - sampleTime;
+		float predicted;
+		if(elapsed >= duration){
+			predicted = target;
+		}
+		else if(elapsed <= 0){
+			predicted = from;
+		}
+		else {
+			predicted = from + (target - from) * elapsed / duration;
+		}
+		if(predicted > value){
+			value = predicted;
+		}
+		return value;
+	}
+
+	/**
+	 * @return true while the displayed value is still moving towards the latest sample
+	 */
+	boolean isAdvancing(){
+		return value < target;
+	}
+}
@@ -0,0 +1,38 @@
+package com.dd;
+
+/**
+ * Sweep angle math of the determinate progress ring.
+ */
+final class ProgressSweep
+{
+	private ProgressSweep(){
+	}
+
+	static float angle(float fraction){
+		return 360f * fraction;
+	}
+
+	/**
+	 * @return completed fraction of {@code total}, between 0 and 1
+	 */
+	static float fraction(long current, long total){
+		if(total <= 0 || current <= 0){
+			return 0;
+		}
+		return current >= total ? 1 : (float) ((double) current / total);
+	}
+
+	/**
+	 * @return sweep steps per full circle, one per pixel along the center line of a ring {@code size} pixels wide
+	 */
+	static int autoSteps(int size, int strokeWidth){
+		return Math.max((int) Math.ceil(Math.PI * (size - strokeWidth)), 1);
+	}
+
+	/**
+	 * @return sweep angle quantized to {@code steps} steps per full circle
+	 */
+	static int step(float sweepAngle, int steps){
+		return Math.round(sweepAngle * steps / 360f);
+	}
+}
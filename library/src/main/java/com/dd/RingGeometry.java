@@ -0,0 +1,60 @@
+package com.dd;
+
+/**
+ * Square the progress ring and the indeterminate spinner are drawn in, centered in the button and inset by
+ * the progress padding. Recomputed only when the button size, padding or stroke width changes.
+ */
+final class RingGeometry
+{
+	private int width = -1;
+	private int height = -1;
+	private int padding = -1;
+	private int strokeWidth = -1;
+
+	private int size;
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
+
+	/**
+	 * @return true if the geometry changed and drawables bound to it have to be updated
+	 */
+	boolean set(int width, int height, int padding, int strokeWidth){
+		if(width == this.width && height == this.height && padding == this.padding
+				&& strokeWidth == this.strokeWidth){
+			return false;
+		}
+		this.width = width;
+		this.height = height;
+		this.padding = padding;
+		this.strokeWidth = strokeWidth;
+
+		size = Math.max(height - padding * 2, 0);
+		left = (width - height) / 2 + padding;
+		top = padding;
+		right = left + size;
+		bottom = top + size;
+		return true;
+	}
+
+	int getSize(){
+		return size;
+	}
+
+	int getLeft(){
+		return left;
+	}
+
+	int getTop(){
+		return top;
+	}
+
+	int getRight(){
+		return right;
+	}
+
+	int getBottom(){
+		return bottom;
+	}
+}
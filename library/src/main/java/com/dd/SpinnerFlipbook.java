@@ -0,0 +1,162 @@
+package com.dd;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.v4.util.LruCache;
+
+/**
+ * Pre-rendered frames of the indeterminate spinner arc for devices where rasterizing an antialiased arc
+ * every frame is too expensive. The arc shape only depends on its sweep angle, its start angle is a plain
+ * rotation, so one atlas holds the arcs covering the whole sweep range of {@link SpinnerPhase} and a frame
+ * is drawn as a single rotated bitmap blit. Like the determinate ring, consecutive frames differ by about
+ * one pixel of arc, so the frame count and the atlas grow with the ring.
+ * <p>
+ * Atlases are {@link Bitmap.Config#ALPHA_8} masks drawn with the caller's paint color, so one atlas serves
+ * every color. They are cached process-wide per (size, stroke width) in an LRU cache bounded by
+ * {@link #CACHE_BYTES}, rings whose atlas alone exceeds it are not flipbooked.
+ */
+final class SpinnerFlipbook
+{
+	static final int CACHE_BYTES = 1024 * 1024;
+	private static final float MIN_ARC_SWEEP = SpinnerPhase.MIN_SWEEP_ANGLE;
+	private static final float MAX_ARC_SWEEP = 360f - SpinnerPhase.MIN_SWEEP_ANGLE;
+
+	private static final LruCache<Long, SpinnerFlipbook> CACHE = new LruCache<Long, SpinnerFlipbook>(CACHE_BYTES)
+	{
+		@Override
+		protected int sizeOf(Long key, SpinnerFlipbook value){
+			return value.getByteCount();
+		}
+	};
+
+	private final Bitmap atlas;
+	private final int size;
+	private final int frameCount;
+	private final int columns;
+	private final int byteCount;
+	private final Rect src = new Rect();
+	private final RectF dst = new RectF();
+
+	private SpinnerFlipbook(int size, int strokeWidth){
+		this.size = size;
+		frameCount = frameCount(size, strokeWidth);
+		columns = columns(frameCount);
+		byteCount = atlasBytes(size, strokeWidth);
+		atlas = Bitmap.createBitmap(size * columns, size * rows(frameCount), Bitmap.Config.ALPHA_8);
+
+		Paint paint = new Paint();
+		paint.setAntiAlias(true);
+		paint.setStyle(Paint.Style.STROKE);
+		paint.setStrokeWidth(strokeWidth);
+
+		// same inset as CircularAnimatedDrawable.onBoundsChange()
+		float inset = strokeWidth / 2f + .5f;
+		Canvas canvas = new Canvas(atlas);
+		RectF oval = new RectF();
+		for(int i = 0; i < frameCount; i++){
+			int left = i % columns * size;
+			int top = i / columns * size;
+			oval.set(left + inset, top + inset, left + size - inset, top + size - inset);
+			canvas.drawArc(oval, 0, sweepOf(i), false, paint);
+		}
+	}
+
+	/**
+	 * @return the shared flipbook for this ring, or null if a single atlas would not fit the cache budget
+	 */
+	static SpinnerFlipbook obtain(int size, int strokeWidth){
+		if(size <= 0 || atlasBytes(size, strokeWidth) > CACHE_BYTES){
+			return null;
+		}
+		Long key = ((long) size << 32) | (strokeWidth & 0xffffffffL);
+		SpinnerFlipbook flipbook = CACHE.get(key);
+		if(flipbook == null){
+			flipbook = new SpinnerFlipbook(size, strokeWidth);
+			CACHE.put(key, flipbook);
+		}
+		return flipbook;
+	}
+
+	/**
+	 * Drops every cached atlas, flipbooks already handed out stay usable.
+	 */
+	static void clearCache(){
+		CACHE.evictAll();
+	}
+
+	/**
+	 * @return frames needed for consecutive arcs to differ by about one pixel along the ring
+	 */
+	static int frameCount(int size, int strokeWidth){
+		int steps = (int) Math.ceil(ProgressSweep.autoSteps(size, strokeWidth) * (MAX_ARC_SWEEP - MIN_ARC_SWEEP) / 360f);
+		return Math.max(steps, 1) + 1;
+	}
+
+	static int atlasBytes(int size, int strokeWidth){
+		int frameCount = frameCount(size, strokeWidth);
+		// ALPHA_8 rows are padded to 4 bytes
+		return ((size * columns(frameCount) + 3) & ~3) * size * rows(frameCount);
+	}
+
+	/**
+	 * Lays the frames out in a roughly square atlas, keeping it well below the maximum texture size.
+	 */
+	private static int columns(int frameCount){
+		return (int) Math.ceil(Math.sqrt(frameCount));
+	}
+
+	private static int rows(int frameCount){
+		int columns = columns(frameCount);
+		return (frameCount + columns - 1) / columns;
+	}
+
+	private float sweepOf(int frame){
+		return MIN_ARC_SWEEP + (MAX_ARC_SWEEP - MIN_ARC_SWEEP) * frame / (frameCount - 1);
+	}
+
+	int frameOf(float sweepAngle){
+		int frame = Math.round((sweepAngle - MIN_ARC_SWEEP) / (MAX_ARC_SWEEP - MIN_ARC_SWEEP) * (frameCount - 1));
+		if(frame < 0){
+			return 0;
+		}
+		return frame >= frameCount ? frameCount - 1 : frame;
+	}
+
+	int getSize(){
+		return size;
+	}
+
+	int getFrameCount(){
+		return frameCount;
+	}
+
+	/**
+	 * @return bytes the atlas counts against {@link #CACHE_BYTES}
+	 */
+	int getByteCount(){
+		return byteCount;
+	}
+
+	/**
+	 * Draws the frame closest to the given arc, centered in the bounds and rotated to its start angle.
+	 * The paint supplies color, alpha and color filter, it should have bitmap filtering enabled.
+	 */
+	void draw(Canvas canvas, Rect bounds, float startAngle, float sweepAngle, Paint paint){
+		int frame = frameOf(sweepAngle);
+		int left = frame % columns * size;
+		int top = frame / columns * size;
+		src.set(left, top, left + size, top + size);
+
+		float centerX = bounds.exactCenterX();
+		float centerY = bounds.exactCenterY();
+		dst.set(centerX - size / 2f, centerY - size / 2f, centerX + size / 2f, centerY + size / 2f);
+
+		int saveCount = canvas.save();
+		canvas.rotate(startAngle, centerX, centerY);
+		canvas.drawBitmap(atlas, src, dst, paint);
+		canvas.restoreToCount(saveCount);
+	}
+}
@@ -0,0 +1,69 @@
+package com.dd;
+
+/**
+ * Angle state of the indeterminate spinner and the arc derived from it. The whole state is a pure function
+ * of the time elapsed since the spinner started, see {@link #setElapsed(long)}.
+ */
+final class SpinnerPhase
+{
+	static final int MIN_SWEEP_ANGLE = 30;
+	static final int ANGLE_DURATION = 2000;
+	static final int SWEEP_DURATION = 600;
+	private static final float MAX_SWEEP_ANGLE = 360f - MIN_SWEEP_ANGLE * 2;
+
+	private float globalAngleOffset;
+	private float globalAngle;
+	private float sweepAngle;
+	private boolean modeAppearing;
+	private long elapsed = Long.MIN_VALUE;
+
+	/**
+	 * Computes the phase analytically: the global angle turns linearly once per {@link #ANGLE_DURATION},
+	 * the sweep decelerates over every {@link #SWEEP_DURATION} and each sweep cycle toggles between the
+	 * appearing and disappearing mode, advancing the angle offset every time the arc starts appearing.
+	 * Calling it again with the same time is free, so one phase can be shared by many readers per frame.
+	 */
+	void setElapsed(long elapsedMillis){
+		if(elapsedMillis == elapsed){
+			return;
+		}
+		elapsed = elapsedMillis;
+
+		globalAngle = 360f * (elapsedMillis % ANGLE_DURATION) / ANGLE_DURATION;
+
+		long cycle = elapsedMillis / SWEEP_DURATION;
+		float sweepFraction = (float) (elapsedMillis % SWEEP_DURATION) / SWEEP_DURATION;
+		// DecelerateInterpolator
+		sweepAngle = (1f - (1f - sweepFraction) * (1f - sweepFraction)) * MAX_SWEEP_ANGLE;
+
+		modeAppearing = cycle % 2 == 1;
+		globalAngleOffset = ((cycle + 1) / 2 * MIN_SWEEP_ANGLE * 2) % 360;
+	}
+
+	float getGlobalAngle(){
+		return globalAngle;
+	}
+
+	float getSweepAngle(){
+		return sweepAngle;
+	}
+
+	boolean isModeAppearing(){
+		return modeAppearing;
+	}
+
+	float getArcStartAngle(){
+		float startAngle = globalAngle - globalAngleOffset;
+		if(!modeAppearing){
+			startAngle = startAngle + sweepAngle;
+		}
+		return startAngle;
+	}
+
+	float getArcSweepAngle(){
+		if(!modeAppearing){
+			return 360 - sweepAngle - MIN_SWEEP_ANGLE;
+		}
+		return sweepAngle + MIN_SWEEP_ANGLE;
+	}
+}
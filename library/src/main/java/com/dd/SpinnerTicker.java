@@ -0,0 +1,184 @@
+package com.dd;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide frame ticker for the indeterminate spinners. One frame callback is posted per vsync
+ * no matter how many spinners are running, every registered {@link Callback} is called once per frame
+ * with the same frame time.
+ * <p>
+ * Must only be used from the main thread.
+ */
+final class SpinnerTicker
+{
+	private static final long FALLBACK_FRAME_DELAY = 16;
+
+	interface Callback
+	{
+		void onFrame(long frameTimeMillis);
+	}
+
+	interface Clock
+	{
+		long uptimeMillis();
+	}
+
+	/**
+	 * Virtual clock for tests: while installed no frames are scheduled, call {@link #doFrame()} to step.
+	 */
+	static final class ManualClock implements Clock
+	{
+		private long time;
+
+		@Override
+		public long uptimeMillis(){
+			return time;
+		}
+
+		void advance(long millis){
+			time += millis;
+		}
+	}
+
+	private static final Clock SYSTEM_CLOCK = new Clock()
+	{
+		@Override
+		public long uptimeMillis(){
+			return SystemClock.uptimeMillis();
+		}
+	};
+
+	private static SpinnerTicker instance;
+
+	private final ArrayList<Callback> callbacks = new ArrayList<Callback>();
+	private final SpinnerPhase sharedPhase = new SpinnerPhase();
+	private final FrameScheduler scheduler;
+	private Clock clock = SYSTEM_CLOCK;
+	private boolean scheduled;
+
+	static SpinnerTicker getInstance(){
+		if(instance == null){
+			instance = new SpinnerTicker();
+		}
+		return instance;
+	}
+
+	private SpinnerTicker(){
+		Runnable frame = new Runnable()
+		{
+			@Override
+			public void run(){
+				scheduled = false;
+				doFrame();
+			}
+		};
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+			scheduler = new ChoreographerScheduler(frame);
+		}
+		else {
+			scheduler = new HandlerScheduler(frame);
+		}
+	}
+
+	void register(Callback callback){
+		if(!callbacks.contains(callback)){
+			callbacks.add(callback);
+		}
+		scheduleFrame();
+	}
+
+	void unregister(Callback callback){
+		callbacks.remove(callback);
+	}
+
+	int getRegisteredCount(){
+		return callbacks.size();
+	}
+
+	/**
+	 * Phase shared by all synchronized spinners. It is computed from the frame time itself, so the first
+	 * reader in a frame pays for it and every other one gets it for free.
+	 */
+	SpinnerPhase getSharedPhase(long frameTimeMillis){
+		sharedPhase.setElapsed(frameTimeMillis);
+		return sharedPhase;
+	}
+
+	long now(){
+		return clock.uptimeMillis();
+	}
+
+	void setClock(Clock clock){
+		this.clock = clock == null ? SYSTEM_CLOCK : clock;
+		scheduleFrame();
+	}
+
+	/**
+	 * Dispatches one frame to every registered callback and schedules the next one while any are left.
+	 */
+	void doFrame(){
+		long frameTime = clock.uptimeMillis();
+		// iterate backwards so callbacks can unregister themselves
+		for(int i = callbacks.size() - 1; i >= 0; i--){
+			if(i < callbacks.size()){
+				callbacks.get(i).onFrame(frameTime);
+			}
+		}
+		scheduleFrame();
+	}
+
+	private void scheduleFrame(){
+		if(scheduled || callbacks.isEmpty() || clock != SYSTEM_CLOCK){
+			return;
+		}
+		scheduled = true;
+		scheduler.schedule();
+	}
+
+	private interface FrameScheduler
+	{
+		void schedule();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class ChoreographerScheduler implements FrameScheduler, Choreographer.FrameCallback
+	{
+		private final Runnable frame;
+
+		ChoreographerScheduler(Runnable frame){
+			this.frame = frame;
+		}
+
+		@Override
+		public void schedule(){
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos){
+			frame.run();
+		}
+	}
+
+	private static class HandlerScheduler implements FrameScheduler
+	{
+		private final Handler handler = new Handler(Looper.getMainLooper());
+		private final Runnable frame;
+
+		HandlerScheduler(Runnable frame){
+			this.frame = frame;
+		}
+
+		@Override
+		public void schedule(){
+			handler.postDelayed(frame, FALLBACK_FRAME_DELAY);
+		}
+	}
+}
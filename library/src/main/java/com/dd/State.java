@@ -0,0 +1,9 @@
+package com.dd;
+
+/**
+ * States of a {@link CircularProgressButton}, see {@link CircularProgressButton#bindState(State)}.
+ */
+public enum State
+{
+	PROGRESS, IDLE, COMPLETE, ERROR
+}
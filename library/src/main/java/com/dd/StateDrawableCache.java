@@ -0,0 +1,91 @@
+package com.dd;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.view.View;
+
+import com.dd.circular.progress.button.R;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide cache of the static (pressed, focused, disabled) state drawables used by
+ * {@link CircularProgressButton}. Drawables are cached per theme by their {@link Drawable.ConstantState},
+ * so every button with the same color, corner radius and stroke width shares a single inflated state.
+ * <p>
+ * Drawables handed out by this cache share their state and must never be mutated.
+ */
+final class StateDrawableCache
+{
+	private static final WeakHashMap<Resources.Theme, HashMap<Key, Drawable.ConstantState>> CACHE =
+			new WeakHashMap<Resources.Theme, HashMap<Key, Drawable.ConstantState>>();
+
+	private StateDrawableCache(){
+	}
+
+	static Drawable obtain(View view, int color, float cornerRadius, int strokeWidth){
+		Resources.Theme theme = view.getContext().getTheme();
+		HashMap<Key, Drawable.ConstantState> states = CACHE.get(theme);
+		if(states == null){
+			states = new HashMap<Key, Drawable.ConstantState>();
+			CACHE.put(theme, states);
+		}
+
+		Key key = new Key(color, cornerRadius, strokeWidth);
+		Drawable.ConstantState state = states.get(key);
+		if(state != null){
+			return state.newDrawable(view.getResources());
+		}
+
+		GradientDrawable drawable = (GradientDrawable)
+				ViewUtils.drawable(R.drawable.cpb_background, view).mutate();
+		drawable.setColor(color);
+		drawable.setCornerRadius(cornerRadius);
+		drawable.setStroke(strokeWidth, color);
+
+		state = drawable.getConstantState();
+		if(state == null){
+			return drawable;
+		}
+		states.put(key, state);
+		// the template stays out of any button, so no caller holds the drawable backing the entry
+		return state.newDrawable(view.getResources());
+	}
+
+	private static final class Key
+	{
+		private final int color;
+		private final float cornerRadius;
+		private final int strokeWidth;
+
+		Key(int color, float cornerRadius, int strokeWidth){
+			this.color = color;
+			this.cornerRadius = cornerRadius;
+			this.strokeWidth = strokeWidth;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof Key)){
+				return false;
+			}
+			Key key = (Key) o;
+			return color == key.color
+					&& strokeWidth == key.strokeWidth
+					&& Float.compare(cornerRadius, key.cornerRadius) == 0;
+		}
+
+		@Override
+		public int hashCode(){
+			int result = color;
+			result = 31 * result + Float.floatToIntBits(cornerRadius);
+			result = 31 * result + strokeWidth;
+			return result;
+		}
+	}
+}
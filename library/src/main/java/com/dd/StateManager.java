@@ -1,32 +1,90 @@
 package com.dd;
 
+/**
+ * Plans the morphs of a {@link CircularProgressButton}. Progress requests are collected until the next
+ * frame and then turned into the single transition from the state on screen to the latest request;
+ * transitions requested in between that would never be seen are elided.
+ * <p>
+ * Kept free of Android types so the planning can be benchmarked on the JVM.
+ */
 class StateManager {
 
     private boolean mIsEnabled;
-    private int mProgress;
 
-    public StateManager(CircularProgressButton progressButton) {
-        mIsEnabled = progressButton.isEnabled();
-        mProgress = progressButton.getProgress();
-    }
+    private State mRequestedState;
+    private State mTarget;
+    private int mRequestedTransitions;
+
+    private int mPlannedTransitions;
+    private int mElidedTransitions;
 
-    public void saveProgress(CircularProgressButton progressButton) {
-        mProgress = progressButton.getProgress();
+    public StateManager(boolean isEnabled) {
+        mIsEnabled = isEnabled;
     }
 
     public boolean isEnabled() {
         return mIsEnabled;
     }
 
-    public int getProgress() {
-        return mProgress;
-    }
+    /**
+     * Records a request for the target state, it is applied by the next {@link #plan(State)}.
+     *
+     * @param current state on screen, or the state a running morph is heading to
+     * @param target  requested state, null requests nothing
+     */
+    public void request(State current, State target) {
+        mTarget = target;
 
-    public void checkState(CircularProgressButton progressButton) {
-        if (progressButton.getProgress() != getProgress()) {
-            progressButton.setProgress(progressButton.getProgress(), true);
-        } else if(progressButton.isEnabled() != isEnabled()) {
-            progressButton.setEnabled(progressButton.isEnabled());
+        if (mRequestedTransitions == 0) {
+            mRequestedState = current;
         }
+        Transition transition = Transition.between(mRequestedState, target);
+        if (isMorph(transition)) {
+            mRequestedState = transition.target;
+            mRequestedTransitions++;
+        }
+    }
+
+    /**
+     * @return true if requests since the last plan ask for a morph
+     */
+    public boolean hasRequestedTransitions() {
+        return mRequestedTransitions > 0;
+    }
+
+    /**
+     * @param current state on screen, or the state a running morph is heading to
+     * @return the one transition that takes the button from {@code current} to the latest request
+     */
+    public Transition plan(State current) {
+        Transition transition = Transition.between(current, mTarget);
+
+        int planned = isMorph(transition) ? 1 : 0;
+        mPlannedTransitions += planned;
+        mElidedTransitions += Math.max(mRequestedTransitions - planned, 0);
+        mRequestedTransitions = 0;
+
+        return transition;
+    }
+
+    /**
+     * Drops requests not planned yet, the button now shows {@code state} without a transition.
+     */
+    public void reset(State state) {
+        mTarget = state;
+        mRequestedState = state;
+        mRequestedTransitions = 0;
+    }
+
+    public int getPlannedTransitionCount() {
+        return mPlannedTransitions;
+    }
+
+    public int getElidedTransitionCount() {
+        return mElidedTransitions;
+    }
+
+    private static boolean isMorph(Transition transition) {
+        return transition != Transition.NONE && transition != Transition.PROGRESS_UPDATE;
     }
 }
@@ -0,0 +1,134 @@
+package com.dd;
+
+import java.io.IOException;
+
+/**
+ * Fixed-size ring buffer of timestamped button events, kept in primitive arrays so recording allocates
+ * nothing. Once full the oldest events are overwritten. {@link #writeChromeTrace(Appendable)} dumps the
+ * buffer in the Chrome trace-event JSON format, which chrome://tracing and Perfetto open directly.
+ * <p>
+ * Kept free of Android types so the export can be checked on the JVM. Not thread-safe, events are
+ * recorded on the main thread.
+ */
+final class StateTimeline
+{
+	static final int EVENT_PROGRESS = 0;
+	static final int EVENT_MORPH_START = 1;
+	static final int EVENT_MORPH_END = 2;
+	static final int EVENT_SPINNER_START = 3;
+	static final int EVENT_SPINNER_STOP = 4;
+
+	private static final int TRACK_STATE = 1;
+	private static final int TRACK_SPINNER = 2;
+
+	private final long[] times;
+	private final int[] events;
+	private final int[] values;
+	private int next;
+	private int size;
+
+	StateTimeline(int capacity){
+		if(capacity <= 0){
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		times = new long[capacity];
+		events = new int[capacity];
+		values = new int[capacity];
+	}
+
+	/**
+	 * @param value progress for {@link #EVENT_PROGRESS}, the {@link State} ordinal for morph events
+	 */
+	void record(int event, int value, long timeNanos){
+		times[next] = timeNanos;
+		events[next] = event;
+		values[next] = value;
+		next = (next + 1) % times.length;
+		if(size < times.length){
+			size++;
+		}
+	}
+
+	int getCapacity(){
+		return times.length;
+	}
+
+	int size(){
+		return size;
+	}
+
+	void clear(){
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * Writes the recorded events, oldest first. Morphs and spinner runs become duration ("B"/"E") events,
+	 * progress values instant ("i") events, timestamps are in microseconds. A spinner starts and stops
+	 * independently of morphs, so its runs go on a track of their own; "B"/"E" pairs only nest within a
+	 * track. End events whose begin was overwritten by the ring buffer are left out.
+	 */
+	void writeChromeTrace(Appendable out) throws IOException{
+		State[] states = State.values();
+		out.append("{\"traceEvents\":[");
+		appendTrackName(out, TRACK_STATE, "state");
+		out.append(',');
+		appendTrackName(out, TRACK_SPINNER, "spinner");
+		boolean morphOpen = false;
+		boolean spinnerOpen = false;
+		int first = (next - size + times.length) % times.length;
+		for(int i = 0; i < size; i++){
+			int index = (first + i) % times.length;
+			int event = events[index];
+			if(event == EVENT_MORPH_START){
+				morphOpen = true;
+			}
+			else if(event == EVENT_MORPH_END){
+				if(!morphOpen){
+					continue;
+				}
+				morphOpen = false;
+			}
+			else if(event == EVENT_SPINNER_START){
+				spinnerOpen = true;
+			}
+			else if(event == EVENT_SPINNER_STOP){
+				if(!spinnerOpen){
+					continue;
+				}
+				spinnerOpen = false;
+			}
+			int track = event == EVENT_SPINNER_START || event == EVENT_SPINNER_STOP ? TRACK_SPINNER : TRACK_STATE;
+			out.append(",{\"pid\":1,\"tid\":").append(String.valueOf(track))
+					.append(",\"ts\":").append(String.valueOf(times[index] / 1000)).append(',');
+			int value = values[index];
+			switch(event){
+				case EVENT_PROGRESS:
+					out.append("\"ph\":\"i\",\"s\":\"t\",\"name\":\"setProgress\",\"args\":{\"progress\":")
+							.append(String.valueOf(value)).append('}');
+					break;
+				case EVENT_MORPH_START:
+					out.append("\"ph\":\"B\",\"name\":\"morph\",\"args\":{\"to\":\"")
+							.append(states[value].name()).append("\"}");
+					break;
+				case EVENT_MORPH_END:
+					out.append("\"ph\":\"E\",\"name\":\"morph\",\"args\":{\"state\":\"")
+							.append(states[value].name()).append("\"}");
+					break;
+				case EVENT_SPINNER_START:
+					out.append("\"ph\":\"B\",\"name\":\"spinner\"");
+					break;
+				case EVENT_SPINNER_STOP:
+					out.append("\"ph\":\"E\",\"name\":\"spinner\"");
+					break;
+			}
+			out.append('}');
+		}
+		out.append("]}");
+	}
+
+	private static void appendTrackName(Appendable out, int track, String name) throws IOException{
+		out.append("{\"pid\":1,\"tid\":").append(String.valueOf(track))
+				.append(",\"ph\":\"M\",\"name\":\"thread_name\",\"args\":{\"name\":\"").append(name).append("\"}}");
+	}
+}
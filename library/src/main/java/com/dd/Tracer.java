@@ -0,0 +1,37 @@
+package com.dd;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * {@link Trace} sections that compile to a version check on releases without systrace support. Section
+ * names are constants, so tracing allocates nothing and costs a JNI flag check while no trace is recorded.
+ */
+final class Tracer
+{
+	private static final boolean SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+	static final String MORPH_START = "CPB.MorphingAnimation.start";
+	static final String DRAWABLE_STATE_CHANGED = "CPB.drawableStateChanged";
+	static final String DRAW = "CPB.onDraw";
+	static final String DRAW_PROGRESS = "CPB.drawProgress";
+	static final String DRAW_INDETERMINATE_PROGRESS = "CPB.drawIndeterminateProgress";
+
+	private Tracer(){
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void beginSection(String sectionName){
+		if(SUPPORTED){
+			Trace.beginSection(sectionName);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void endSection(){
+		if(SUPPORTED){
+			Trace.endSection();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.dd;
+
+/**
+ * Morph the button has to run to get from its current {@link State} to the one requested by a progress value.
+ * Kept free of Android types so the dispatch can be benchmarked on the JVM.
+ */
+enum Transition
+{
+	NONE(null),
+	PROGRESS_UPDATE(State.PROGRESS),
+	TO_PROGRESS(State.PROGRESS),
+	PROGRESS_TO_COMPLETE(State.COMPLETE),
+	IDLE_TO_COMPLETE(State.COMPLETE),
+	ERROR_TO_COMPLETE(State.COMPLETE),
+	PROGRESS_TO_ERROR(State.ERROR),
+	IDLE_TO_ERROR(State.ERROR),
+	COMPLETE_TO_IDLE(State.IDLE),
+	PROGRESS_TO_IDLE(State.IDLE),
+	ERROR_TO_IDLE(State.IDLE);
+
+	static final int IDLE_PROGRESS = 0;
+	static final int ERROR_PROGRESS = -1;
+	static final int SUCCESS_PROGRESS = 100;
+	static final int INDETERMINATE_PROGRESS = 50;
+
+	final State target;
+	/**
+	 * Systrace section of the morph, built once so tracing does not concatenate strings per transition.
+	 */
+	final String traceSection;
+
+	Transition(State target){
+		this.target = target;
+		this.traceSection = "CPB." + name();
+	}
+
+	/**
+	 * Reads the legacy int progress, where -1, 0 and values from {@code maxProgress} up double as states.
+	 *
+	 * @return state requested by the progress value, null if it requests nothing
+	 */
+	static State targetOf(int progress, int maxProgress){
+		if(progress >= maxProgress){
+			return State.COMPLETE;
+		}
+		else if(progress == ERROR_PROGRESS){
+			return State.ERROR;
+		}
+		else if(progress == IDLE_PROGRESS){
+			return State.IDLE;
+		}
+		else if(progress > IDLE_PROGRESS){
+			return State.PROGRESS;
+		}
+		return null;
+	}
+
+	static Transition between(State state, State target){
+		if(target == State.COMPLETE){
+			if(state == State.PROGRESS){
+				return PROGRESS_TO_COMPLETE;
+			}
+			else if(state == State.IDLE){
+				return IDLE_TO_COMPLETE;
+			}
+			else if(state == State.ERROR){
+				return ERROR_TO_COMPLETE;
+			}
+		}
+		else if(target == State.ERROR){
+			if(state == State.PROGRESS){
+				return PROGRESS_TO_ERROR;
+			}
+			else if(state == State.IDLE){
+				return IDLE_TO_ERROR;
+			}
+		}
+		else if(target == State.IDLE){
+			if(state == State.COMPLETE){
+				return COMPLETE_TO_IDLE;
+			}
+			else if(state == State.PROGRESS){
+				return PROGRESS_TO_IDLE;
+			}
+			else if(state == State.ERROR){
+				return ERROR_TO_IDLE;
+			}
+		}
+		else if(target == State.PROGRESS){
+			if(state == State.PROGRESS){
+				return PROGRESS_UPDATE;
+			}
+			else {
+				return TO_PROGRESS;
+			}
+		}
+		return NONE;
+	}
+}
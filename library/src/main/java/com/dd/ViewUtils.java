@@ -1,10 +1,12 @@
 package com.dd;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.PowerManager;
 import android.support.annotation.ColorInt;
 import android.support.annotation.ColorRes;
 import android.support.annotation.DrawableRes;
@@ -49,4 +51,13 @@ public class ViewUtils
 	public static ColorStateList colorStateList(@ColorRes int colorResID, View v){
 		return ContextCompat.getColorStateList(v.getContext(), colorResID);
 	}
-}
+
+	@SuppressLint("NewApi")
+	public static boolean isPowerSaveMode(View v){
+		if(Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP){
+			return false;
+		}
+		PowerManager powerManager = (PowerManager) v.getContext().getSystemService(Context.POWER_SERVICE);
+		return powerManager != null && powerManager.isPowerSaveMode();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.dd;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the bytes the current thread allocates, on JVMs that support per-thread allocation accounting.
+ */
+final class Allocations
+{
+	private Allocations(){
+	}
+
+	/**
+	 * Runs the block once to warm it up, then returns what a second run allocated.
+	 */
+	static long measure(Runnable block){
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue("no per-thread allocation accounting", bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		long thread = Thread.currentThread().getId();
+
+		block.run();
+		long before = threads.getThreadAllocatedBytes(thread);
+		block.run();
+		return threads.getThreadAllocatedBytes(thread) - before;
+	}
+}
@@ -0,0 +1,52 @@
+package com.dd;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ButtonSpecTest
+{
+	private Context context;
+	private CircularProgressButton button;
+
+	@Before
+	public void setUp(){
+		context = RuntimeEnvironment.application;
+		button = new CircularProgressButton(context);
+	}
+
+	@Test
+	public void sharesSpecWithinTheme(){
+		assertSame(ButtonSpec.obtain(button, context, null), ButtonSpec.obtain(button, context, null));
+	}
+
+	@Test
+	public void resolvesAgainAfterConfigurationChange(){
+		ButtonSpec portrait = ButtonSpec.obtain(button, context, null);
+
+		// an activity handling the change itself keeps its theme
+		Resources resources = context.getResources();
+		Configuration configuration = new Configuration(resources.getConfiguration());
+		configuration.orientation = configuration.orientation == Configuration.ORIENTATION_LANDSCAPE
+				? Configuration.ORIENTATION_PORTRAIT : Configuration.ORIENTATION_LANDSCAPE;
+		resources.updateConfiguration(configuration, resources.getDisplayMetrics());
+
+		ButtonSpec landscape = ButtonSpec.obtain(button, context, null);
+		assertNotSame(portrait, landscape);
+		assertSame(landscape, ButtonSpec.obtain(button, context, null));
+	}
+}
@@ -0,0 +1,177 @@
+package com.dd;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularProgressButtonTest
+{
+	private static final int COLOR = 0xff123456;
+
+	private CircularProgressButton button;
+
+	@Before
+	public void setUp(){
+		button = new CircularProgressButton(RuntimeEnvironment.application);
+		button.layout(0, 0, 400, 100);
+	}
+
+	@Test
+	public void reusesStateBackgrounds(){
+		button.bindState(State.IDLE);
+		Drawable idle = button.getBackground();
+		button.bindState(State.COMPLETE);
+		Drawable complete = button.getBackground();
+
+		button.bindState(State.IDLE);
+		assertSame(idle, button.getBackground());
+		button.bindState(State.COMPLETE);
+		assertSame(complete, button.getBackground());
+	}
+
+	@Test
+	public void morphingBackgroundInvalidatesShownStateAfterRoundTrip(){
+		button.bindState(State.COMPLETE);
+		button.bindState(State.IDLE);
+
+		Drawable shown = button.getBackground();
+		assertSame(shown, shown.getCurrent().getCallback());
+	}
+
+	@Test
+	public void prewarmBuildsRingBeforeFirstProgressFrame(){
+		assertNull(button.getProgressDrawable());
+
+		button.prewarm();
+
+		assertNotNull(button.getProgressDrawable());
+		assertEquals(new Rect(150, 0, 250, 100), button.getProgressDrawable().getBounds());
+	}
+
+	@Test
+	public void prewarmBuildsSpinnerInIndeterminateMode(){
+		button.setIndeterminateProgressMode(true);
+
+		button.prewarm();
+
+		assertNotNull(button.getAnimatedDrawable());
+		assertNull(button.getProgressDrawable());
+	}
+
+	@Test
+	public void reboundProgressStaysCircleAfterResize(){
+		button.bindState(State.PROGRESS, .5f, false);
+
+		button.layout(0, 0, 600, 100);
+		// what the next draw does with the background of a resized view
+		button.getBackground().setBounds(0, 0, 600, 100);
+
+		Rect shape = button.getBackground().getCurrent().getBounds();
+		assertEquals(shape.height(), shape.width());
+		assertEquals(300, shape.centerX());
+	}
+
+	@Test
+	public void relayoutKeepsColorsSetByApp(){
+		button.setBackgroundColor(COLOR);
+
+		button.layout(0, 0, 600, 100);
+		assertEquals(COLOR, shadowOf(shownShape()).getLastSetColor());
+		assertEquals(new Rect(0, 0, 600, 100), shownShape().getBounds());
+
+		button.layout(20, 0, 620, 100);
+		assertEquals(COLOR, shadowOf(shownShape()).getLastSetColor());
+	}
+
+	@Test
+	public void warmRebindAllocatesNothing(){
+		final State[] states = State.values();
+		long allocated = Allocations.measure(new Runnable()
+		{
+			@Override
+			public void run(){
+				for(int row = 0; row < 10; row++){
+					for(State state : states){
+						button.bindState(state, .5f, false);
+					}
+				}
+			}
+		});
+		assertEquals(0, allocated);
+	}
+
+	@Test
+	public void progressPostedFromWorkerBeforeAttachIsApplied() throws InterruptedException{
+		postFromWorker(50);
+		ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+		Robolectric.setupActivity(Activity.class).setContentView(button);
+		ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+		assertEquals(50, button.getProgress());
+
+		// the first post did not leave the button waiting for a frame that never comes
+		postFromWorker(60);
+		ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+		assertEquals(60, button.getProgress());
+	}
+
+	@Test
+	public void warmProgressUpdatesAllocateNothing(){
+		button.bindState(State.PROGRESS, .01f, false);
+		final CircularProgressDrawable ring = button.getProgressDrawable();
+		long allocated = Allocations.measure(new Runnable()
+		{
+			@Override
+			public void run(){
+				for(int progress = 1; progress < 100; progress++){
+					button.setProgress(progress);
+					// what drawProgress() does before handing the ring to the canvas
+					ring.setSweepAngle(progress * 3.6f);
+				}
+			}
+		});
+		assertEquals(0, allocated);
+	}
+
+	@Test
+	public void enteringProgressBuildsRingBeforeDraw(){
+		button.bindState(State.PROGRESS, .5f, false);
+
+		assertNotNull(button.getProgressDrawable());
+	}
+
+	private void postFromWorker(final int progress) throws InterruptedException{
+		Thread worker = new Thread(new Runnable()
+		{
+			@Override
+			public void run(){
+				button.postProgress(progress);
+			}
+		});
+		worker.start();
+		worker.join();
+	}
+
+	private GradientDrawable shownShape(){
+		return (GradientDrawable) button.getBackground().getCurrent();
+	}
+}
@@ -0,0 +1,38 @@
+package com.dd;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularProgressDrawableTest
+{
+	@Test
+	public void skipsSweepChangesWithinOneStep(){
+		CircularProgressDrawable drawable = new CircularProgressDrawable(4, 0xff0099cc);
+		drawable.setBounds(0, 0, 100, 100);
+		drawable.setSweepSteps(360);
+
+		assertTrue(drawable.setSweepAngle(90f));
+		assertFalse(drawable.setSweepAngle(90.4f));
+		assertTrue(drawable.setSweepAngle(91f));
+	}
+
+	@Test
+	public void autoStepsFollowRingLength(){
+		CircularProgressDrawable drawable = new CircularProgressDrawable(4, 0xff0099cc);
+		drawable.setBounds(0, 0, 100, 100);
+		drawable.setSweepAngle(90f);
+
+		// one step is 360 / ceil(pi * 96) degrees, just above one degree
+		assertFalse(drawable.setSweepAngle(90.5f));
+		assertTrue(drawable.setSweepAngle(92f));
+	}
+}
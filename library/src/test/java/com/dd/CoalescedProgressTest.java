@@ -0,0 +1,137 @@
+package com.dd;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescedProgressTest
+{
+	private static final int MAX = 100;
+	private static final int PRODUCERS = 4;
+	private static final int OFFERS = 20000;
+	private static final int ROUNDS = 50;
+
+	@Test
+	public void keepsLatestValue(){
+		CoalescedProgress progress = new CoalescedProgress(MAX);
+		assertFalse(progress.offer(10));
+		assertTrue(progress.offer(20));
+		assertEquals(20, progress.take());
+		assertEquals(CoalescedProgress.NONE, progress.take());
+	}
+
+	@Test
+	public void regularValuesNeverReplaceTerminalOnes(){
+		CoalescedProgress progress = new CoalescedProgress(MAX);
+		progress.offer(Transition.ERROR_PROGRESS);
+		assertTrue(progress.offer(50));
+		assertEquals(Transition.ERROR_PROGRESS, progress.take());
+
+		progress.offer(MAX);
+		progress.offer(99);
+		assertEquals(MAX, progress.take());
+	}
+
+	@Test
+	public void terminalValuesReplaceEachOther(){
+		CoalescedProgress progress = new CoalescedProgress(MAX);
+		progress.offer(50);
+		progress.offer(Transition.ERROR_PROGRESS);
+		progress.offer(MAX);
+		assertEquals(MAX, progress.take());
+	}
+
+	@Test
+	public void followsMaxProgress(){
+		CoalescedProgress progress = new CoalescedProgress(MAX);
+		progress.setMaxProgress(1000);
+		progress.offer(MAX);
+		progress.offer(500);
+		assertEquals(500, progress.take());
+	}
+
+	/**
+	 * Several producers hammer the slot while a consumer takes from it like the frame callback does. The
+	 * single terminal value of each round must reach the consumer, and every offer that filled the empty
+	 * slot must be taken exactly once.
+	 */
+	@Test
+	public void neverLosesTerminalValueUnderContention() throws InterruptedException{
+		for(int round = 0; round < ROUNDS; round++){
+			final CoalescedProgress progress = new CoalescedProgress(MAX);
+			final AtomicInteger filled = new AtomicInteger();
+			final AtomicBoolean producing = new AtomicBoolean(true);
+			final CountDownLatch start = new CountDownLatch(1);
+			final CountDownLatch done = new CountDownLatch(PRODUCERS);
+			final int terminalProducer = round % PRODUCERS;
+			final int terminalOffer = new Random(round).nextInt(OFFERS);
+
+			for(int p = 0; p < PRODUCERS; p++){
+				final int producer = p;
+				new Thread(new Runnable()
+				{
+					@Override
+					public void run(){
+						Random random = new Random(producer);
+						awaitQuietly(start);
+						for(int i = 0; i < OFFERS; i++){
+							int value = producer == terminalProducer && i == terminalOffer
+									? Transition.ERROR_PROGRESS : 1 + random.nextInt(MAX - 1);
+							if(!progress.offer(value)){
+								filled.incrementAndGet();
+							}
+						}
+						done.countDown();
+					}
+				}).start();
+			}
+
+			int taken = 0;
+			int terminalTaken = 0;
+			start.countDown();
+			new Thread(new Runnable()
+			{
+				@Override
+				public void run(){
+					awaitQuietly(done);
+					producing.set(false);
+				}
+			}).start();
+			while(producing.get()){
+				int value = progress.take();
+				if(value != CoalescedProgress.NONE){
+					taken++;
+					if(value == Transition.ERROR_PROGRESS){
+						terminalTaken++;
+					}
+				}
+			}
+			int value = progress.take();
+			if(value != CoalescedProgress.NONE){
+				taken++;
+				if(value == Transition.ERROR_PROGRESS){
+					terminalTaken++;
+				}
+			}
+
+			assertEquals("round " + round, 1, terminalTaken);
+			assertEquals("round " + round, filled.get(), taken);
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch){
+		try {
+			latch.await();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
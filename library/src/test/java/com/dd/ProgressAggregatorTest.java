@@ -0,0 +1,204 @@
+package com.dd;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressAggregatorTest
+{
+	private static final int THREADS = 4;
+	private static final int UPDATES = 20000;
+
+	@Test
+	public void weighsTasks(){
+		ProgressAggregator aggregator = new ProgressAggregator();
+		assertEquals(0, aggregator.getFraction(), 0);
+		assertFalse(aggregator.isComplete());
+
+		ProgressAggregator.Task small = aggregator.addTask(10, 1);
+		ProgressAggregator.Task large = aggregator.addTask(1000, 3);
+		small.set(5);
+		large.add(250);
+		assertEquals((0.5f + 3 * 0.25f) / 4, aggregator.getFraction(), 1e-6f);
+
+		// overshooting the total counts as done, completing counts in full
+		small.set(20);
+		large.complete();
+		assertEquals(1, aggregator.getFraction(), 0);
+		assertFalse(aggregator.isComplete());
+		small.complete();
+		assertTrue(aggregator.isComplete());
+	}
+
+	@Test
+	public void concurrentUpdatesAddUp() throws InterruptedException{
+		final ProgressAggregator aggregator = new ProgressAggregator();
+		final AtomicInteger notifications = new AtomicInteger();
+		aggregator.setListener(new ProgressAggregator.Listener()
+		{
+			@Override
+			public void onTaskChanged(){
+				notifications.incrementAndGet();
+			}
+		});
+		// every thread updates a task of its own and one shared by all of them
+		final ProgressAggregator.Task shared = aggregator.addTask(2L * THREADS * UPDATES, 1);
+		final List<ProgressAggregator.Task> own = new ArrayList<ProgressAggregator.Task>();
+		for(int i = 0; i < THREADS; i++){
+			own.add(aggregator.addTask(4L * UPDATES, 1));
+		}
+		runConcurrently(new Worker()
+		{
+			@Override
+			public void run(int thread){
+				ProgressAggregator.Task task = own.get(thread);
+				for(int i = 0; i < UPDATES; i++){
+					task.add(1);
+					shared.add(1);
+				}
+			}
+		});
+		assertEquals(1 + THREADS, aggregator.getTaskCount());
+		assertEquals((0.5f + THREADS * 0.25f) / (1 + THREADS), aggregator.getFraction(), 1e-6f);
+		assertEquals(1 + THREADS + 2 * THREADS * UPDATES, notifications.get());
+		assertFalse(aggregator.isComplete());
+		assertFalse(aggregator.isFailed());
+	}
+
+	@Test
+	public void completesOnceEveryConcurrentTaskCompleted() throws InterruptedException{
+		final ProgressAggregator aggregator = new ProgressAggregator();
+		final ProgressAggregator.Task[] tasks = new ProgressAggregator.Task[THREADS];
+		final CountDownLatch added = new CountDownLatch(THREADS);
+		final CountDownLatch completed = new CountDownLatch(THREADS - 1);
+		runConcurrently(new Worker()
+		{
+			@Override
+			public void run(int thread) throws InterruptedException{
+				// tasks are registered concurrently too
+				ProgressAggregator.Task task = aggregator.addTask(UPDATES, 1 + thread);
+				tasks[thread] = task;
+				added.countDown();
+				added.await();
+				for(int i = 0; i < UPDATES; i++){
+					task.add(1);
+				}
+				if(thread > 0){
+					task.complete();
+					completed.countDown();
+				}
+				else {
+					completed.await();
+					assertFalse(aggregator.isComplete());
+					task.complete();
+				}
+			}
+		});
+		assertEquals(THREADS, aggregator.getTaskCount());
+		assertTrue(aggregator.isComplete());
+		assertFalse(aggregator.isFailed());
+		assertEquals(1, aggregator.getFraction(), 0);
+	}
+
+	@Test
+	public void oneFailedTaskFailsAllWork() throws InterruptedException{
+		final ProgressAggregator aggregator = new ProgressAggregator();
+		final List<ProgressAggregator.Task> tasks = new ArrayList<ProgressAggregator.Task>();
+		for(int i = 0; i < THREADS; i++){
+			tasks.add(aggregator.addTask(UPDATES, 1));
+		}
+		runConcurrently(new Worker()
+		{
+			@Override
+			public void run(int thread){
+				ProgressAggregator.Task task = tasks.get(thread);
+				for(int i = 0; i < UPDATES; i++){
+					task.add(1);
+					if(thread == 0 && i == UPDATES / 2){
+						task.fail();
+					}
+				}
+				if(thread != 0){
+					task.complete();
+				}
+			}
+		});
+		assertTrue(aggregator.isFailed());
+		assertFalse(aggregator.isComplete());
+	}
+
+	@Test
+	public void failureIsFinal() throws InterruptedException{
+		ProgressAggregator aggregator = new ProgressAggregator();
+		ProgressAggregator.Task task = aggregator.addTask(UPDATES, 1);
+		task.fail();
+		task.complete();
+		assertTrue(aggregator.isFailed());
+		assertFalse(aggregator.isComplete());
+
+		// a worker failing the task races another code path completing it
+		for(int round = 0; round < 100; round++){
+			final ProgressAggregator racing = new ProgressAggregator();
+			final ProgressAggregator.Task[] tasks = {racing.addTask(UPDATES, 1)};
+			runConcurrently(new Worker()
+			{
+				@Override
+				public void run(int thread){
+					if(thread % 2 == 0){
+						tasks[0].fail();
+					}
+					else {
+						tasks[0].complete();
+					}
+				}
+			});
+			assertTrue(racing.isFailed());
+			assertFalse(racing.isComplete());
+		}
+	}
+
+	private interface Worker
+	{
+		void run(int thread) throws InterruptedException;
+	}
+
+	private static void runConcurrently(final Worker worker) throws InterruptedException{
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger failures = new AtomicInteger();
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[THREADS];
+		for(int i = 0; i < THREADS; i++){
+			final int thread = i;
+			threads[i] = new Thread(new Runnable()
+			{
+				@Override
+				public void run(){
+					try {
+						start.await();
+						worker.run(thread);
+					}
+					catch(Throwable t){
+						if(failures.getAndIncrement() == 0){
+							failure[0] = t;
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for(Thread thread : threads){
+			thread.join();
+		}
+		if(failures.get() > 0){
+			throw new AssertionError(failure[0]);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.dd;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressExtrapolatorTest
+{
+	private static final long FRAME = 16;
+	private static final float DELTA = 1e-6f;
+
+	@Test
+	public void neverPassesLatestSampleWhenProducerSlowsDown(){
+		ProgressExtrapolator extrapolator = new ProgressExtrapolator();
+		extrapolator.reset(0f, 0);
+		extrapolator.addSample(.1f, 1000);
+		extrapolator.addSample(.5f, 2000);
+
+		for(long time = 2000; time < 5000; time += FRAME){
+			assertTrue(extrapolator.valueAt(time) <= .5f);
+		}
+		float shown = extrapolator.valueAt(5000);
+		extrapolator.addSample(.55f, 5000);
+		assertTrue(extrapolator.valueAt(5000) >= shown);
+		assertTrue(extrapolator.valueAt(6000) <= .55f);
+	}
+
+	@Test
+	public void settlesOnSampleAfterOneInterval(){
+		ProgressExtrapolator extrapolator = new ProgressExtrapolator();
+		extrapolator.reset(.2f, 0);
+		extrapolator.addSample(.4f, 1000);
+
+		assertTrue(extrapolator.isAdvancing());
+		assertEquals(.3f, extrapolator.valueAt(1500), DELTA);
+		assertEquals(.4f, extrapolator.valueAt(2000), DELTA);
+		assertFalse(extrapolator.isAdvancing());
+		assertEquals(.4f, extrapolator.valueAt(10000), DELTA);
+	}
+
+	@Test
+	public void continuesFromDisplayedValueWhenSampleArrivesEarly(){
+		ProgressExtrapolator extrapolator = new ProgressExtrapolator();
+		extrapolator.reset(0f, 0);
+		extrapolator.addSample(.4f, 1000);
+		float shown = extrapolator.valueAt(1500);
+
+		extrapolator.addSample(.6f, 1500);
+
+		assertEquals(shown, extrapolator.valueAt(1500), DELTA);
+		assertEquals(.6f, extrapolator.valueAt(2000), DELTA);
+	}
+
+	@Test
+	public void followsRealRegressionRightAway(){
+		ProgressExtrapolator extrapolator = new ProgressExtrapolator();
+		extrapolator.reset(0f, 0);
+		extrapolator.addSample(.5f, 1000);
+		extrapolator.valueAt(2000);
+
+		extrapolator.addSample(.3f, 2500);
+
+		assertEquals(.3f, extrapolator.valueAt(2500), DELTA);
+		assertEquals(.3f, extrapolator.valueAt(4000), DELTA);
+	}
+
+	@Test
+	public void isMonotonicAndBoundedForIrregularUpdates(){
+		Random random = new Random(7);
+		ProgressExtrapolator extrapolator = new ProgressExtrapolator();
+		extrapolator.reset(0f, 0);
+
+		float reported = 0;
+		float shown = 0;
+		long nextSample = 0;
+		for(long time = 0; time < 60000; time += FRAME){
+			if(time >= nextSample){
+				reported = Math.min(reported + random.nextFloat() * .05f, 1f);
+				extrapolator.addSample(reported, time);
+				nextSample = time + 200 + random.nextInt(3000);
+			}
+			float value = extrapolator.valueAt(time);
+			assertTrue("moved backwards at " + time, value >= shown);
+			assertTrue("passed the reported value at " + time, value <= reported + DELTA);
+			shown = value;
+		}
+	}
+}
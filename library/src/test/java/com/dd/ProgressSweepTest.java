@@ -0,0 +1,35 @@
+package com.dd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProgressSweepTest
+{
+	private static final int STEPS = 300;
+
+	@Test
+	public void quantizesToSteps(){
+		assertEquals(0, ProgressSweep.step(0f, STEPS));
+		assertEquals(150, ProgressSweep.step(180f, STEPS));
+		assertEquals(STEPS, ProgressSweep.step(360f, STEPS));
+		// changes below half a step map to the same step and are not redrawn
+		assertEquals(ProgressSweep.step(ProgressSweep.angle(.5f), STEPS),
+				ProgressSweep.step(ProgressSweep.angle(.5f + .4f / STEPS), STEPS));
+	}
+
+	@Test
+	public void autoStepsFollowRingLength(){
+		// 100px ring with a 4px stroke: 96px center line diameter, 302 pixels around
+		assertEquals(302, ProgressSweep.autoSteps(100, 4));
+		assertEquals(1, ProgressSweep.autoSteps(4, 4));
+	}
+
+	@Test
+	public void fractionClampsToTotal(){
+		assertEquals(0f, ProgressSweep.fraction(-1, 100), 0);
+		assertEquals(0f, ProgressSweep.fraction(10, 0), 0);
+		assertEquals(.25f, ProgressSweep.fraction(1L << 40, 1L << 42), 0);
+		assertEquals(1f, ProgressSweep.fraction(101, 100), 0);
+	}
+}
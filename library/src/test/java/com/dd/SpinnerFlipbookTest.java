@@ -0,0 +1,108 @@
+package com.dd;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpinnerFlipbookTest
+{
+	private static final int STROKE = 4;
+	private static final int SMALL_RING = 40;
+
+	@Before
+	public void setUp(){
+		SpinnerFlipbook.clearCache();
+	}
+
+	@After
+	public void tearDown(){
+		SpinnerFlipbook.clearCache();
+	}
+
+	@Test
+	public void framesStepAboutOnePixelOfArc(){
+		for(int size = 8; size <= 200; size++){
+			int frames = SpinnerFlipbook.frameCount(size, STROKE);
+			float range = 360f - 2 * SpinnerPhase.MIN_SWEEP_ANGLE;
+			double pixelsPerStep = range / (frames - 1) / 360 * Math.PI * (size - STROKE);
+			assertTrue("ring of " + size + "px steps by " + pixelsPerStep + "px", pixelsPerStep <= 1);
+			assertTrue("ring of " + size + "px steps by " + pixelsPerStep + "px", pixelsPerStep > .9f);
+		}
+	}
+
+	@Test
+	public void evictsAtlasesBeyondBudget(){
+		SpinnerFlipbook first = SpinnerFlipbook.obtain(SMALL_RING, STROKE);
+		assertNotNull(first);
+		assertSame(first, SpinnerFlipbook.obtain(SMALL_RING, STROKE));
+
+		// rings of other sizes fill the cache until the first atlas no longer fits next to them
+		int cached = first.getByteCount();
+		int size = SMALL_RING;
+		while(cached <= SpinnerFlipbook.CACHE_BYTES){
+			SpinnerFlipbook other = SpinnerFlipbook.obtain(++size, STROKE);
+			assertNotNull(other);
+			cached += other.getByteCount();
+		}
+
+		SpinnerFlipbook rebuilt = SpinnerFlipbook.obtain(SMALL_RING, STROKE);
+		assertNotSame(first, rebuilt);
+		assertEquals(first.getFrameCount(), rebuilt.getFrameCount());
+		// the most recent atlas survived
+		assertSame(SpinnerFlipbook.obtain(size, STROKE), SpinnerFlipbook.obtain(size, STROKE));
+	}
+
+	@Test
+	public void ringsBeyondBudgetAreNotFlipbooked(){
+		int size = SMALL_RING;
+		while(SpinnerFlipbook.atlasBytes(size, STROKE) <= SpinnerFlipbook.CACHE_BYTES){
+			size++;
+		}
+		assertNotNull(SpinnerFlipbook.obtain(size - 1, STROKE));
+		assertNull(SpinnerFlipbook.obtain(size, STROKE));
+	}
+
+	@Test
+	public void largeRingsFallBackToDrawArc(){
+		CircularAnimatedDrawable drawable = new CircularAnimatedDrawable(Color.BLUE, STROKE);
+		drawable.setFlipbookEnabled(true);
+
+		drawable.setBounds(0, 0, SMALL_RING, SMALL_RING);
+		assertNotNull(drawable.getFlipbook());
+		assertEquals(0, arcsDrawnBy(drawable));
+
+		int size = SMALL_RING;
+		while(SpinnerFlipbook.atlasBytes(size, STROKE) <= SpinnerFlipbook.CACHE_BYTES){
+			size++;
+		}
+		drawable.setBounds(0, 0, size, size);
+		assertNull(drawable.getFlipbook());
+		assertEquals(1, arcsDrawnBy(drawable));
+	}
+
+	private static int arcsDrawnBy(CircularAnimatedDrawable drawable){
+		int size = drawable.getBounds().width();
+		Canvas canvas = new Canvas(Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888));
+		drawable.draw(canvas);
+		return shadowOf(canvas).getArcPaintHistoryCount();
+	}
+}
@@ -0,0 +1,101 @@
+package com.dd;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpinnerLifecycleTest
+{
+	private SpinnerTicker ticker;
+	private SpinnerTicker.ManualClock clock;
+	private FrameLayout parent;
+	private CircularProgressButton button;
+	private int running;
+
+	@Before
+	public void setUp(){
+		ticker = SpinnerTicker.getInstance();
+		clock = new SpinnerTicker.ManualClock();
+		ticker.setClock(clock);
+		running = CircularAnimatedDrawable.getRunningCount();
+
+		Activity activity = Robolectric.setupActivity(Activity.class);
+		parent = new FrameLayout(activity);
+		activity.setContentView(parent);
+		button = new CircularProgressButton(activity);
+		button.setIndeterminateProgressMode(true);
+		parent.addView(button, new ViewGroup.LayoutParams(400, 100));
+		parent.layout(0, 0, 400, 100);
+		button.layout(0, 0, 400, 100);
+		button.bindState(State.PROGRESS);
+		assertEquals(running + 1, CircularAnimatedDrawable.getRunningCount());
+	}
+
+	@After
+	public void tearDown(){
+		parent.removeView(button);
+		ticker.setClock(null);
+	}
+
+	@Test
+	public void detachingPausesSpinner(){
+		parent.removeView(button);
+		assertEquals(running, CircularAnimatedDrawable.getRunningCount());
+
+		parent.addView(button);
+		assertEquals(running + 1, CircularAnimatedDrawable.getRunningCount());
+	}
+
+	@Test
+	public void goneButtonPausesSpinner(){
+		button.setVisibility(View.GONE);
+		assertEquals(running, CircularAnimatedDrawable.getRunningCount());
+
+		button.setVisibility(View.VISIBLE);
+		assertEquals(running + 1, CircularAnimatedDrawable.getRunningCount());
+	}
+
+	@Test
+	public void invisibleWindowPausesSpinner(){
+		parent.dispatchWindowVisibilityChanged(View.INVISIBLE);
+		assertEquals(running, CircularAnimatedDrawable.getRunningCount());
+
+		parent.dispatchWindowVisibilityChanged(View.VISIBLE);
+		assertEquals(running + 1, CircularAnimatedDrawable.getRunningCount());
+	}
+
+	@Test
+	public void resumesWherePaused(){
+		for(int i = 0; i < 20; i++){
+			clock.advance(16);
+			ticker.doFrame();
+		}
+		SpinnerPhase phase = button.getAnimatedDrawable().getDrawPhase();
+		float startAngle = phase.getArcStartAngle();
+		float sweepAngle = phase.getArcSweepAngle();
+
+		button.setVisibility(View.GONE);
+		clock.advance(5000);
+		button.setVisibility(View.VISIBLE);
+
+		assertTrue(button.getAnimatedDrawable().isRunning());
+		assertEquals(startAngle, phase.getArcStartAngle(), 0);
+		assertEquals(sweepAngle, phase.getArcSweepAngle(), 0);
+	}
+}
@@ -0,0 +1,81 @@
+package com.dd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link SpinnerPhase} with the two infinite ObjectAnimators it replaced: a linear angle animator
+ * over 2000 ms and a decelerating sweep animator over 600 ms whose every repeat toggled the appearing mode
+ * and, when toggling to appearing, advanced the angle offset by twice the minimum sweep.
+ */
+public class SpinnerPhaseTest
+{
+	private static final long FRAME = 16;
+	private static final long DURATION = 20000;
+	private static final float DELTA = .01f;
+
+	@Test
+	public void matchesAnimatorSequence(){
+		SpinnerPhase phase = new SpinnerPhase();
+		boolean modeAppearing = false;
+		float angleOffset = 0;
+		long repeats = 0;
+
+		for(long time = 0; time <= DURATION; time += FRAME){
+			// onAnimationRepeat() of the sweep animator, once per elapsed cycle
+			while(repeats < time / SpinnerPhase.SWEEP_DURATION){
+				repeats++;
+				modeAppearing = !modeAppearing;
+				if(modeAppearing){
+					angleOffset = (angleOffset + SpinnerPhase.MIN_SWEEP_ANGLE * 2) % 360;
+				}
+			}
+			float globalAngle = 360f * (time % SpinnerPhase.ANGLE_DURATION) / SpinnerPhase.ANGLE_DURATION;
+			float sweepFraction = (float) (time % SpinnerPhase.SWEEP_DURATION) / SpinnerPhase.SWEEP_DURATION;
+			float sweep = (1f - (1f - sweepFraction) * (1f - sweepFraction)) * (360f - SpinnerPhase.MIN_SWEEP_ANGLE * 2);
+
+			phase.setElapsed(time);
+			String at = "at " + time + " ms";
+			assertEquals(at, modeAppearing, phase.isModeAppearing());
+			assertEquals(at, globalAngle, phase.getGlobalAngle(), DELTA);
+			assertEquals(at, sweep, phase.getSweepAngle(), DELTA);
+			if(modeAppearing){
+				assertEquals(at, globalAngle - angleOffset, phase.getArcStartAngle(), DELTA);
+				assertEquals(at, sweep + SpinnerPhase.MIN_SWEEP_ANGLE, phase.getArcSweepAngle(), DELTA);
+			}
+			else {
+				assertEquals(at, globalAngle - angleOffset + sweep, phase.getArcStartAngle(), DELTA);
+				assertEquals(at, 360 - sweep - SpinnerPhase.MIN_SWEEP_ANGLE, phase.getArcSweepAngle(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void togglesModeOnEveryCycleBoundary(){
+		SpinnerPhase phase = new SpinnerPhase();
+		phase.setElapsed(SpinnerPhase.SWEEP_DURATION - 1);
+		assertEquals(false, phase.isModeAppearing());
+		phase.setElapsed(SpinnerPhase.SWEEP_DURATION);
+		assertEquals(true, phase.isModeAppearing());
+		phase.setElapsed(SpinnerPhase.SWEEP_DURATION * 2);
+		assertEquals(false, phase.isModeAppearing());
+	}
+
+	@Test
+	public void isAFunctionOfTimeOnly(){
+		SpinnerPhase stepped = new SpinnerPhase();
+		for(long time = 0; time <= 7321; time += FRAME){
+			stepped.setElapsed(time);
+		}
+		stepped.setElapsed(7321);
+
+		// a spinner resumed after a pause jumps straight to its elapsed time
+		SpinnerPhase jumped = new SpinnerPhase();
+		jumped.setElapsed(7321);
+
+		assertEquals(stepped.isModeAppearing(), jumped.isModeAppearing());
+		assertEquals(stepped.getArcStartAngle(), jumped.getArcStartAngle(), 0);
+		assertEquals(stepped.getArcSweepAngle(), jumped.getArcSweepAngle(), 0);
+	}
+}
@@ -0,0 +1,171 @@
+package com.dd;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpinnerTickerTest
+{
+	private static final int FRAMES = 60;
+	private static final int FRAME_MILLIS = 16;
+
+	private SpinnerTicker ticker;
+	private SpinnerTicker.ManualClock clock;
+
+	@Before
+	public void setUp(){
+		ticker = SpinnerTicker.getInstance();
+		clock = new SpinnerTicker.ManualClock();
+		ticker.setClock(clock);
+	}
+
+	@After
+	public void tearDown(){
+		ticker.setClock(null);
+	}
+
+	@Test
+	public void dispatchesOneVirtualFrameToEveryCallback(){
+		FrameRecorder first = new FrameRecorder();
+		FrameRecorder second = new FrameRecorder();
+		ticker.register(first);
+		ticker.register(second);
+		ticker.register(first);
+		try {
+			clock.advance(16);
+			ticker.doFrame();
+			clock.advance(16);
+			ticker.doFrame();
+
+			assertEquals(2, first.frames.size());
+			assertEquals(32L, (long) first.frames.get(1));
+			assertEquals(first.frames, second.frames);
+		}
+		finally {
+			ticker.unregister(first);
+			ticker.unregister(second);
+		}
+	}
+
+	@Test
+	public void stoppedSpinnersLeaveTheTicker(){
+		int running = CircularAnimatedDrawable.getRunningCount();
+		CircularAnimatedDrawable drawable = new CircularAnimatedDrawable(0xff0099cc, 4);
+		drawable.setBounds(0, 0, 100, 100);
+
+		drawable.start();
+		clock.advance(16);
+		ticker.doFrame();
+		assertEquals(running + 1, CircularAnimatedDrawable.getRunningCount());
+
+		drawable.stop();
+		assertEquals(running, CircularAnimatedDrawable.getRunningCount());
+	}
+
+	@Test
+	public void capsRedrawsToMaxFrameRate(){
+		CircularAnimatedDrawable drawable = spinner();
+		drawable.setMaxFrameRate(20);
+		drawable.setMinAngularDelta(0);
+
+		// 50ms between redraws at 16ms frames: every fourth frame, starting with the first
+		assertEquals(15, runFrames(drawable));
+		assertEquals(FRAMES - 15, drawable.getSuppressedInvalidationCount());
+	}
+
+	@Test
+	public void skipsFramesBelowMinAngularDelta(){
+		CircularAnimatedDrawable still = spinner();
+		still.setMinAngularDelta(Float.MAX_VALUE);
+		assertEquals(0, runFrames(still));
+		assertEquals(FRAMES, still.getSuppressedInvalidationCount());
+
+		CircularAnimatedDrawable every = spinner();
+		every.setMinAngularDelta(0);
+		assertEquals(FRAMES, runFrames(every));
+		assertEquals(0, every.getSuppressedInvalidationCount());
+	}
+
+	@Test
+	public void frameRateCapAndAngularDeltaCombine(){
+		CircularAnimatedDrawable drawable = spinner();
+		drawable.setMaxFrameRate(20);
+
+		int invalidated = runFrames(drawable);
+		assertTrue(invalidated > 0);
+		assertTrue(invalidated <= 15);
+		assertEquals(FRAMES, invalidated + drawable.getSuppressedInvalidationCount());
+	}
+
+	private static CircularAnimatedDrawable spinner(){
+		CircularAnimatedDrawable drawable = new CircularAnimatedDrawable(0xff0099cc, 4);
+		drawable.setBounds(0, 0, 100, 100);
+		return drawable;
+	}
+
+	/**
+	 * Runs {@link #FRAMES} virtual frames with the drawable started.
+	 *
+	 * @return number of redraws the frames requested
+	 */
+	private int runFrames(CircularAnimatedDrawable drawable){
+		InvalidationCounter counter = new InvalidationCounter();
+		drawable.setCallback(counter);
+		drawable.start();
+		counter.invalidations = 0;
+		try {
+			for(int i = 0; i < FRAMES; i++){
+				clock.advance(FRAME_MILLIS);
+				ticker.doFrame();
+			}
+		}
+		finally {
+			drawable.stop();
+		}
+		return counter.invalidations;
+	}
+
+	private static class InvalidationCounter implements Drawable.Callback
+	{
+		int invalidations;
+
+		@Override
+		public void invalidateDrawable(@NonNull Drawable who){
+			invalidations++;
+		}
+
+		@Override
+		public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when){
+		}
+
+		@Override
+		public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what){
+		}
+	}
+
+	private static class FrameRecorder implements SpinnerTicker.Callback
+	{
+		final List<Long> frames = new ArrayList<Long>();
+
+		@Override
+		public void onFrame(long frameTimeMillis){
+			frames.add(frameTimeMillis);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.dd;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import com.dd.circular.progress.button.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class StateDrawableCacheTest
+{
+	private static final int COLOR = 0xff0099cc;
+
+	private View view;
+
+	@Before
+	public void setUp(){
+		view = new View(RuntimeEnvironment.application);
+	}
+
+	@Test
+	public void sharesStateBetweenButtons(){
+		Drawable first = StateDrawableCache.obtain(view, COLOR, 4f, 2);
+		Drawable second = StateDrawableCache.obtain(new View(RuntimeEnvironment.application), COLOR, 4f, 2);
+
+		assertNotSame(first, second);
+		assertSame(first.getConstantState(), second.getConstantState());
+	}
+
+	@Test
+	public void keysOnColorCornerRadiusAndStrokeWidth(){
+		Drawable drawable = StateDrawableCache.obtain(view, COLOR, 4f, 2);
+
+		assertNotSame(drawable.getConstantState(), StateDrawableCache.obtain(view, 0xff99cc00, 4f, 2).getConstantState());
+		assertNotSame(drawable.getConstantState(), StateDrawableCache.obtain(view, COLOR, 8f, 2).getConstantState());
+		assertNotSame(drawable.getConstantState(), StateDrawableCache.obtain(view, COLOR, 4f, 3).getConstantState());
+	}
+
+	@Test
+	public void warmStateChangesAllocateNothing(){
+		final CircularProgressButton button = new CircularProgressButton(RuntimeEnvironment.application);
+		button.layout(0, 0, 400, 100);
+		button.setFocusableInTouchMode(true);
+		final State[] states = {State.IDLE, State.COMPLETE, State.ERROR};
+		long allocated = Allocations.measure(new Runnable()
+		{
+			@Override
+			public void run(){
+				for(State state : states){
+					button.bindState(state);
+					button.setPressed(true);
+					button.setPressed(false);
+					button.requestFocus();
+					button.clearFocus();
+					button.setEnabled(false);
+					button.setEnabled(true);
+				}
+			}
+		});
+		assertEquals(0, allocated);
+	}
+}
@@ -0,0 +1,94 @@
+package com.dd;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StateManagerTest
+{
+	private StateManager stateManager;
+
+	@Before
+	public void setUp(){
+		stateManager = new StateManager(true);
+	}
+
+	@Test
+	public void progressFinishedWithinOneFrameGoesStraightToComplete(){
+		stateManager.request(State.IDLE, State.PROGRESS);
+		stateManager.request(State.IDLE, State.COMPLETE);
+
+		assertSame(Transition.IDLE_TO_COMPLETE, stateManager.plan(State.IDLE));
+		assertCounts(1, 1);
+	}
+
+	@Test
+	public void roundTripWithinOneFrameRunsNothing(){
+		stateManager.request(State.IDLE, State.PROGRESS);
+		stateManager.request(State.IDLE, State.IDLE);
+
+		assertSame(Transition.NONE, stateManager.plan(State.IDLE));
+		assertCounts(0, 2);
+	}
+
+	@Test
+	public void errorThenIdleWithinOneFrameRunsNothing(){
+		stateManager.request(State.PROGRESS, State.ERROR);
+		stateManager.request(State.PROGRESS, State.IDLE);
+		stateManager.request(State.PROGRESS, State.PROGRESS);
+
+		assertSame(Transition.PROGRESS_UPDATE, stateManager.plan(State.PROGRESS));
+		assertCounts(0, 3);
+	}
+
+	@Test
+	public void progressUpdatesAreNotTransitions(){
+		stateManager.request(State.PROGRESS, State.PROGRESS);
+		stateManager.request(State.PROGRESS, State.PROGRESS);
+
+		assertFalse(stateManager.hasRequestedTransitions());
+		assertSame(Transition.PROGRESS_UPDATE, stateManager.plan(State.PROGRESS));
+		assertCounts(0, 0);
+	}
+
+	@Test
+	public void plansFromStateOnScreenAtFrameTime(){
+		stateManager.request(State.IDLE, State.PROGRESS);
+		assertTrue(stateManager.hasRequestedTransitions());
+
+		// a running morph into progress finished before the frame
+		assertSame(Transition.PROGRESS_UPDATE, stateManager.plan(State.PROGRESS));
+		assertCounts(0, 1);
+	}
+
+	@Test
+	public void separateFramesPlanEveryTransition(){
+		stateManager.request(State.IDLE, State.PROGRESS);
+		assertSame(Transition.TO_PROGRESS, stateManager.plan(State.IDLE));
+		stateManager.request(State.PROGRESS, State.COMPLETE);
+		assertSame(Transition.PROGRESS_TO_COMPLETE, stateManager.plan(State.PROGRESS));
+
+		assertCounts(2, 0);
+	}
+
+	@Test
+	public void resetDropsPendingRequests(){
+		stateManager.request(State.IDLE, State.PROGRESS);
+		stateManager.request(State.IDLE, State.ERROR);
+
+		stateManager.reset(State.COMPLETE);
+
+		assertFalse(stateManager.hasRequestedTransitions());
+		assertSame(Transition.NONE, stateManager.plan(State.COMPLETE));
+		assertCounts(0, 0);
+	}
+
+	private void assertCounts(int planned, int elided){
+		assertEquals("planned", planned, stateManager.getPlannedTransitionCount());
+		assertEquals("elided", elided, stateManager.getElidedTransitionCount());
+	}
+}
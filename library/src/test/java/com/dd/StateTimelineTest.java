@@ -0,0 +1,142 @@
+package com.dd;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StateTimelineTest
+{
+	private static final Pattern EVENT = Pattern.compile(
+			"\\{\"pid\":1,\"tid\":(\\d+),(?:\"ts\":(\\d+),)?\"ph\":\"(\\w)\",(?:\"s\":\"t\",)?\"name\":\"(\\w+)\"(,\"args\":\\{[^}]*\\})?\\}");
+
+	@Test
+	public void writesTraceEventJson() throws IOException{
+		StateTimeline timeline = new StateTimeline(8);
+		timeline.record(StateTimeline.EVENT_MORPH_START, State.PROGRESS.ordinal(), 1000000);
+		timeline.record(StateTimeline.EVENT_PROGRESS, 42, 1500000);
+		timeline.record(StateTimeline.EVENT_MORPH_END, State.PROGRESS.ordinal(), 2000000);
+
+		assertEquals("{\"traceEvents\":["
+				+ "{\"pid\":1,\"tid\":1,\"ph\":\"M\",\"name\":\"thread_name\",\"args\":{\"name\":\"state\"}},"
+				+ "{\"pid\":1,\"tid\":2,\"ph\":\"M\",\"name\":\"thread_name\",\"args\":{\"name\":\"spinner\"}},"
+				+ "{\"pid\":1,\"tid\":1,\"ts\":1000,\"ph\":\"B\",\"name\":\"morph\",\"args\":{\"to\":\"PROGRESS\"}},"
+				+ "{\"pid\":1,\"tid\":1,\"ts\":1500,\"ph\":\"i\",\"s\":\"t\",\"name\":\"setProgress\",\"args\":{\"progress\":42}},"
+				+ "{\"pid\":1,\"tid\":1,\"ts\":2000,\"ph\":\"E\",\"name\":\"morph\",\"args\":{\"state\":\"PROGRESS\"}}"
+				+ "]}", trace(timeline));
+	}
+
+	@Test
+	public void spinnerRunsOverlappingMorphsNestPerTrack() throws IOException{
+		StateTimeline timeline = new StateTimeline(16);
+		// the spinner starts while the morph into progress runs and stops while the morph out of it runs
+		timeline.record(StateTimeline.EVENT_MORPH_START, State.PROGRESS.ordinal(), 1000000);
+		timeline.record(StateTimeline.EVENT_SPINNER_START, 0, 1200000);
+		timeline.record(StateTimeline.EVENT_MORPH_END, State.PROGRESS.ordinal(), 1400000);
+		timeline.record(StateTimeline.EVENT_MORPH_START, State.COMPLETE.ordinal(), 3000000);
+		timeline.record(StateTimeline.EVENT_SPINNER_STOP, 0, 3100000);
+		timeline.record(StateTimeline.EVENT_MORPH_END, State.COMPLETE.ordinal(), 3400000);
+
+		List<String[]> events = parse(trace(timeline));
+		assertEquals(8, events.size());
+		assertWellNested(events);
+		for(String[] event : events){
+			if(event[3].equals("spinner") && !event[2].equals("M")){
+				assertEquals("2", event[0]);
+			}
+			else if(event[3].equals("morph")){
+				assertEquals("1", event[0]);
+			}
+		}
+	}
+
+	@Test
+	public void dropsEndsWhoseBeginWasOverwritten() throws IOException{
+		StateTimeline timeline = new StateTimeline(3);
+		timeline.record(StateTimeline.EVENT_SPINNER_START, 0, 1000000);
+		timeline.record(StateTimeline.EVENT_MORPH_START, State.IDLE.ordinal(), 2000000);
+		timeline.record(StateTimeline.EVENT_PROGRESS, 10, 3000000);
+		timeline.record(StateTimeline.EVENT_SPINNER_STOP, 0, 4000000);
+		timeline.record(StateTimeline.EVENT_MORPH_END, State.IDLE.ordinal(), 5000000);
+		assertEquals(3, timeline.size());
+
+		String trace = trace(timeline);
+		List<String[]> events = parse(trace);
+		assertWellNested(events);
+		assertFalse(trace.contains("\"name\":\"morph\""));
+		assertFalse(trace.contains("\"ph\":\"E\",\"name\":\"spinner\""));
+		assertTrue(trace.contains("\"setProgress\""));
+	}
+
+	@Test
+	public void emptyTimelineWritesOnlyTrackNames() throws IOException{
+		StateTimeline timeline = new StateTimeline(4);
+		timeline.record(StateTimeline.EVENT_PROGRESS, 1, 1000);
+		timeline.clear();
+		assertEquals(2, parse(trace(timeline)).size());
+	}
+
+	private static String trace(StateTimeline timeline) throws IOException{
+		StringBuilder out = new StringBuilder();
+		timeline.writeChromeTrace(out);
+		return out.toString();
+	}
+
+	/**
+	 * @return tid, ts, ph and name of every event, failing unless the whole trace is made of known events
+	 */
+	private static List<String[]> parse(String trace){
+		String prefix = "{\"traceEvents\":[";
+		assertTrue(trace.startsWith(prefix));
+		assertTrue(trace.endsWith("]}"));
+		String body = trace.substring(prefix.length(), trace.length() - 2);
+		List<String[]> events = new ArrayList<String[]>();
+		Matcher matcher = EVENT.matcher(body);
+		int position = 0;
+		while(position < body.length()){
+			if(!events.isEmpty()){
+				assertEquals(',', body.charAt(position));
+				position++;
+			}
+			assertTrue("unexpected event at " + body.substring(position), matcher.find(position)
+					&& matcher.start() == position);
+			events.add(new String[]{matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4)});
+			position = matcher.end();
+		}
+		return events;
+	}
+
+	private static void assertWellNested(List<String[]> events){
+		Map<String, List<String>> open = new HashMap<String, List<String>>();
+		long lastTime = Long.MIN_VALUE;
+		for(String[] event : events){
+			if(event[1] == null){
+				continue;
+			}
+			long time = Long.parseLong(event[1]);
+			assertTrue(time >= lastTime);
+			lastTime = time;
+			List<String> stack = open.get(event[0]);
+			if(stack == null){
+				stack = new ArrayList<String>();
+				open.put(event[0], stack);
+			}
+			if(event[2].equals("B")){
+				stack.add(event[3]);
+			}
+			else if(event[2].equals("E")){
+				assertFalse("unmatched end of " + event[3], stack.isEmpty());
+				assertEquals(event[3], stack.remove(stack.size() - 1));
+			}
+		}
+	}
+}